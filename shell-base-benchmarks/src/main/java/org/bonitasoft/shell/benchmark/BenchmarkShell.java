@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.command.HelpCommand;
+import org.bonitasoft.shell.command.ReflectCommand;
+import org.bonitasoft.shell.command.ShellCommand;
+
+/**
+ * Fixtures shared by the benchmarks
+ * 
+ * @author Baptiste Mesta
+ */
+final class BenchmarkShell {
+
+    static final int API_COUNT = 20;
+
+    private BenchmarkShell() {
+    }
+
+    /**
+     * @return
+     *         a context giving an implementation of {@link SyntheticApi} that returns the name of the called method
+     */
+    static ShellContext context() {
+        final Object api = Proxy.newProxyInstance(SyntheticApi.class.getClassLoader(), new Class<?>[] { SyntheticApi.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return method.getName();
+                    }
+                });
+        return new ShellContext() {
+
+            @Override
+            public boolean isLogged() {
+                return true;
+            }
+
+            @Override
+            public void logout() {
+            }
+
+            @Override
+            public void login(final String username, final String password) {
+            }
+
+            @Override
+            public Object getApi(final String apiName) {
+                return api;
+            }
+        };
+    }
+
+    /**
+     * @return
+     *         commands api00 to api19 all calling {@link SyntheticApi} plus the help command
+     */
+    static HashMap<String, ShellCommand<ShellContext>> commands() {
+        final HashMap<String, ShellCommand<ShellContext>> commands = new HashMap<String, ShellCommand<ShellContext>>();
+        for (int i = 0; i < API_COUNT; i++) {
+            final String name = String.format("api%02d", i);
+            commands.put(name, new ReflectCommand<ShellContext>(name, SyntheticApi.class));
+        }
+        final HelpCommand<ShellContext> helpCommand = new HelpCommand<ShellContext>(commands);
+        commands.put(helpCommand.getName(), helpCommand);
+        return commands;
+    }
+
+    /**
+     * @return
+     *         a stream discarding everything, used to replace System.out so that printing does not dominate
+     */
+    static PrintStream nullPrintStream() {
+        return new PrintStream(new OutputStream() {
+
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        });
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.completer.CommandArgumentsCompleter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TAB completion of command names, method names and method help
+ * 
+ * @author Baptiste Mesta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+    @Param({ "ap", "api07 ", "api07 method1", "api07 method12 " })
+    public String buffer;
+
+    private CommandArgumentsCompleter<ShellContext> completer;
+
+    private final List<CharSequence> candidates = new ArrayList<CharSequence>();
+
+    @Setup
+    public void setup() {
+        completer = new CommandArgumentsCompleter<ShellContext>(BenchmarkShell.commands());
+    }
+
+    @Benchmark
+    public int complete() {
+        candidates.clear();
+        return completer.complete(buffer, buffer.length(), candidates);
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.shell.Tokenizer;
+import org.bonitasoft.shell.completer.ArgumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the single pass {@link Tokenizer} with the regex based parsing it replaced
+ * 
+ * @author Baptiste Mesta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({ "processAPI getProcessInstance 12345",
+            "processAPI searchProcessInstances 0,100,name=my\\ process   true  \"a quoted value\" 42" })
+    public String line;
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    @Benchmark
+    public List<String> legacyRegexParse() {
+        final List<String> asList = Arrays.asList(line.trim()
+                .replaceAll("\\\\ ", "%SPACE%").split("(\\s)+"));
+        for (int i = 0; i < asList.size(); i++) {
+            final String string = asList.get(i);
+            asList.set(i, string.replaceAll("%SPACE%", " "));
+        }
+        return new ArrayList<String>(asList);
+    }
+
+    @Benchmark
+    public List<String> tokenizerParse() {
+        tokenizer.tokenize(line);
+        return tokenizer.getTokens();
+    }
+
+    @Benchmark
+    public int tokenizerSpansOnly() {
+        final int count = tokenizer.tokenize(line);
+        return count == 0 ? 0 : tokenizer.getEnd(count - 1);
+    }
+
+    @Benchmark
+    public List<String> legacyArgumentSplit() {
+        final List<String> list = new ArrayList<String>(Arrays.asList(line.split("(\\s)+")));
+        if (" ".equals(line.substring(line.length() - 1, line.length()))) {
+            list.add("");
+        }
+        return list;
+    }
+
+    @Benchmark
+    public String argumentParser() {
+        return new ArgumentParser(line, tokenizer).getLastArgument();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.shell.color.PrintColor;
+import org.bonitasoft.shell.color.ShellOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Colored output, printed to a stream discarding everything, with and without escape sequences
+ * 
+ * @author Baptiste Mesta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrintColorBenchmark {
+
+    @Param({ "true", "false" })
+    private boolean color;
+
+    private ShellOutput previous;
+
+    @Setup
+    public void setup() {
+        previous = ShellOutput.bind(new ShellOutput(BenchmarkShell.nullPrintStream(), color));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ShellOutput.restore(previous);
+    }
+
+    @Benchmark
+    public void printGreenBold() {
+        PrintColor.printGreenBold("processAPI <method name> <parameters>");
+    }
+
+    @Benchmark
+    public void printRed() {
+        PrintColor.printRed("processAPI <method name> <parameters>");
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.command.MethodIndex;
+import org.bonitasoft.shell.command.ReflectCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatch, overload resolution, argument conversion and invocation of {@link ReflectCommand} against {@link SyntheticApi},
+ * compared with the command generated by shell-base-processor
+ * The result is printed to a stream discarding everything
+ * 
+ * @author Baptiste Mesta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectCommandBenchmark {
+
+    private ReflectCommand<ShellContext> command;
+
+    private SyntheticApiCommand<ShellContext> generatedCommand;
+
+    private ShellContext context;
+
+    private PrintStream out;
+
+    private String methodIndex;
+
+    @Setup
+    public void setup() throws IOException {
+        final StringWriter writer = new StringWriter();
+        MethodIndex.scan(SyntheticApi.class).write(writer);
+        methodIndex = writer.toString();
+        command = new ReflectCommand<ShellContext>("api", SyntheticApi.class);
+        generatedCommand = new SyntheticApiCommand<ShellContext>();
+        context = BenchmarkShell.context();
+        out = System.out;
+        System.setOut(BenchmarkShell.nullPrintStream());
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public boolean execute(final Call call) throws Exception {
+        return command.execute(new ArrayList<String>(call.args), context);
+    }
+
+    @Benchmark
+    public boolean executeGenerated(final Call call) throws Exception {
+        return generatedCommand.execute(new ArrayList<String>(call.args), context);
+    }
+
+    @Benchmark
+    public ReflectCommand<ShellContext> createCommand() {
+        return new ReflectCommand<ShellContext>("api", SyntheticApi.class);
+    }
+
+    @Benchmark
+    public MethodIndex scanMethodIndex() {
+        return MethodIndex.scan(SyntheticApi.class);
+    }
+
+    @Benchmark
+    public MethodIndex readMethodIndex() throws IOException {
+        return MethodIndex.read(new StringReader(methodIndex));
+    }
+
+    @State(Scope.Thread)
+    public static class Call {
+
+        @Param({ "method42 12345", "method42 name", "method42 \"12345\"", "method42 3 true", "method42 name 12 1.5" })
+        public String call;
+
+        private List<String> args;
+
+        @Setup
+        public void setup() {
+            args = Arrays.asList(call.split(" "));
+        }
+    }
+
+}
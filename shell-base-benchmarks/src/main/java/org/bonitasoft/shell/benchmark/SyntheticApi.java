@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.benchmark;
+
+import org.bonitasoft.shell.command.ShellApi;
+
+/**
+ * An API with many overloaded methods: each name has 4 overloads of arity 1, 1, 2 and 3
+ * {@link SyntheticApiCommand} is generated from it
+ * 
+ * @author Baptiste Mesta
+ */
+@ShellApi("api")
+public interface SyntheticApi {
+
+    String method00(long id);
+
+    String method00(String name);
+
+    String method00(int index, boolean flag);
+
+    String method00(String name, long id, double value);
+
+    String method01(long id);
+
+    String method01(String name);
+
+    String method01(int index, boolean flag);
+
+    String method01(String name, long id, double value);
+
+    String method02(long id);
+
+    String method02(String name);
+
+    String method02(int index, boolean flag);
+
+    String method02(String name, long id, double value);
+
+    String method03(long id);
+
+    String method03(String name);
+
+    String method03(int index, boolean flag);
+
+    String method03(String name, long id, double value);
+
+    String method04(long id);
+
+    String method04(String name);
+
+    String method04(int index, boolean flag);
+
+    String method04(String name, long id, double value);
+
+    String method05(long id);
+
+    String method05(String name);
+
+    String method05(int index, boolean flag);
+
+    String method05(String name, long id, double value);
+
+    String method06(long id);
+
+    String method06(String name);
+
+    String method06(int index, boolean flag);
+
+    String method06(String name, long id, double value);
+
+    String method07(long id);
+
+    String method07(String name);
+
+    String method07(int index, boolean flag);
+
+    String method07(String name, long id, double value);
+
+    String method08(long id);
+
+    String method08(String name);
+
+    String method08(int index, boolean flag);
+
+    String method08(String name, long id, double value);
+
+    String method09(long id);
+
+    String method09(String name);
+
+    String method09(int index, boolean flag);
+
+    String method09(String name, long id, double value);
+
+    String method10(long id);
+
+    String method10(String name);
+
+    String method10(int index, boolean flag);
+
+    String method10(String name, long id, double value);
+
+    String method11(long id);
+
+    String method11(String name);
+
+    String method11(int index, boolean flag);
+
+    String method11(String name, long id, double value);
+
+    String method12(long id);
+
+    String method12(String name);
+
+    String method12(int index, boolean flag);
+
+    String method12(String name, long id, double value);
+
+    String method13(long id);
+
+    String method13(String name);
+
+    String method13(int index, boolean flag);
+
+    String method13(String name, long id, double value);
+
+    String method14(long id);
+
+    String method14(String name);
+
+    String method14(int index, boolean flag);
+
+    String method14(String name, long id, double value);
+
+    String method15(long id);
+
+    String method15(String name);
+
+    String method15(int index, boolean flag);
+
+    String method15(String name, long id, double value);
+
+    String method16(long id);
+
+    String method16(String name);
+
+    String method16(int index, boolean flag);
+
+    String method16(String name, long id, double value);
+
+    String method17(long id);
+
+    String method17(String name);
+
+    String method17(int index, boolean flag);
+
+    String method17(String name, long id, double value);
+
+    String method18(long id);
+
+    String method18(String name);
+
+    String method18(int index, boolean flag);
+
+    String method18(String name, long id, double value);
+
+    String method19(long id);
+
+    String method19(String name);
+
+    String method19(int index, boolean flag);
+
+    String method19(String name, long id, double value);
+
+    String method20(long id);
+
+    String method20(String name);
+
+    String method20(int index, boolean flag);
+
+    String method20(String name, long id, double value);
+
+    String method21(long id);
+
+    String method21(String name);
+
+    String method21(int index, boolean flag);
+
+    String method21(String name, long id, double value);
+
+    String method22(long id);
+
+    String method22(String name);
+
+    String method22(int index, boolean flag);
+
+    String method22(String name, long id, double value);
+
+    String method23(long id);
+
+    String method23(String name);
+
+    String method23(int index, boolean flag);
+
+    String method23(String name, long id, double value);
+
+    String method24(long id);
+
+    String method24(String name);
+
+    String method24(int index, boolean flag);
+
+    String method24(String name, long id, double value);
+
+    String method25(long id);
+
+    String method25(String name);
+
+    String method25(int index, boolean flag);
+
+    String method25(String name, long id, double value);
+
+    String method26(long id);
+
+    String method26(String name);
+
+    String method26(int index, boolean flag);
+
+    String method26(String name, long id, double value);
+
+    String method27(long id);
+
+    String method27(String name);
+
+    String method27(int index, boolean flag);
+
+    String method27(String name, long id, double value);
+
+    String method28(long id);
+
+    String method28(String name);
+
+    String method28(int index, boolean flag);
+
+    String method28(String name, long id, double value);
+
+    String method29(long id);
+
+    String method29(String name);
+
+    String method29(int index, boolean flag);
+
+    String method29(String name, long id, double value);
+
+    String method30(long id);
+
+    String method30(String name);
+
+    String method30(int index, boolean flag);
+
+    String method30(String name, long id, double value);
+
+    String method31(long id);
+
+    String method31(String name);
+
+    String method31(int index, boolean flag);
+
+    String method31(String name, long id, double value);
+
+    String method32(long id);
+
+    String method32(String name);
+
+    String method32(int index, boolean flag);
+
+    String method32(String name, long id, double value);
+
+    String method33(long id);
+
+    String method33(String name);
+
+    String method33(int index, boolean flag);
+
+    String method33(String name, long id, double value);
+
+    String method34(long id);
+
+    String method34(String name);
+
+    String method34(int index, boolean flag);
+
+    String method34(String name, long id, double value);
+
+    String method35(long id);
+
+    String method35(String name);
+
+    String method35(int index, boolean flag);
+
+    String method35(String name, long id, double value);
+
+    String method36(long id);
+
+    String method36(String name);
+
+    String method36(int index, boolean flag);
+
+    String method36(String name, long id, double value);
+
+    String method37(long id);
+
+    String method37(String name);
+
+    String method37(int index, boolean flag);
+
+    String method37(String name, long id, double value);
+
+    String method38(long id);
+
+    String method38(String name);
+
+    String method38(int index, boolean flag);
+
+    String method38(String name, long id, double value);
+
+    String method39(long id);
+
+    String method39(String name);
+
+    String method39(int index, boolean flag);
+
+    String method39(String name, long id, double value);
+
+    String method40(long id);
+
+    String method40(String name);
+
+    String method40(int index, boolean flag);
+
+    String method40(String name, long id, double value);
+
+    String method41(long id);
+
+    String method41(String name);
+
+    String method41(int index, boolean flag);
+
+    String method41(String name, long id, double value);
+
+    String method42(long id);
+
+    String method42(String name);
+
+    String method42(int index, boolean flag);
+
+    String method42(String name, long id, double value);
+
+    String method43(long id);
+
+    String method43(String name);
+
+    String method43(int index, boolean flag);
+
+    String method43(String name, long id, double value);
+
+    String method44(long id);
+
+    String method44(String name);
+
+    String method44(int index, boolean flag);
+
+    String method44(String name, long id, double value);
+
+    String method45(long id);
+
+    String method45(String name);
+
+    String method45(int index, boolean flag);
+
+    String method45(String name, long id, double value);
+
+    String method46(long id);
+
+    String method46(String name);
+
+    String method46(int index, boolean flag);
+
+    String method46(String name, long id, double value);
+
+    String method47(long id);
+
+    String method47(String name);
+
+    String method47(int index, boolean flag);
+
+    String method47(String name, long id, double value);
+
+    String method48(long id);
+
+    String method48(String name);
+
+    String method48(int index, boolean flag);
+
+    String method48(String name, long id, double value);
+
+    String method49(long id);
+
+    String method49(String name);
+
+    String method49(int index, boolean flag);
+
+    String method49(String name, long id, double value);
+
+    String method50(long id);
+
+    String method50(String name);
+
+    String method50(int index, boolean flag);
+
+    String method50(String name, long id, double value);
+
+    String method51(long id);
+
+    String method51(String name);
+
+    String method51(int index, boolean flag);
+
+    String method51(String name, long id, double value);
+
+    String method52(long id);
+
+    String method52(String name);
+
+    String method52(int index, boolean flag);
+
+    String method52(String name, long id, double value);
+
+    String method53(long id);
+
+    String method53(String name);
+
+    String method53(int index, boolean flag);
+
+    String method53(String name, long id, double value);
+
+    String method54(long id);
+
+    String method54(String name);
+
+    String method54(int index, boolean flag);
+
+    String method54(String name, long id, double value);
+
+    String method55(long id);
+
+    String method55(String name);
+
+    String method55(int index, boolean flag);
+
+    String method55(String name, long id, double value);
+
+    String method56(long id);
+
+    String method56(String name);
+
+    String method56(int index, boolean flag);
+
+    String method56(String name, long id, double value);
+
+    String method57(long id);
+
+    String method57(String name);
+
+    String method57(int index, boolean flag);
+
+    String method57(String name, long id, double value);
+
+    String method58(long id);
+
+    String method58(String name);
+
+    String method58(int index, boolean flag);
+
+    String method58(String name, long id, double value);
+
+    String method59(long id);
+
+    String method59(String name);
+
+    String method59(int index, boolean flag);
+
+    String method59(String name, long id, double value);
+
+}
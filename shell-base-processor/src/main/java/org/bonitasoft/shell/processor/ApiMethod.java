@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * A method of an API with its erased parameter types, as seen from the API
+ * 
+ * @author Baptiste Mesta
+ */
+class ApiMethod {
+
+    private static final String READ_ONLY = "org.bonitasoft.shell.cache.ReadOnly";
+
+    private final String name;
+
+    private final String[] parameterTypes;
+
+    private final String[] parameterSimpleNames;
+
+    private final boolean returnsVoid;
+
+    private final boolean readOnly;
+
+    ApiMethod(final ExecutableElement element, final ExecutableType type, final Types types) {
+        name = element.getSimpleName().toString();
+        final List<? extends TypeMirror> parameters = type.getParameterTypes();
+        parameterTypes = new String[parameters.size()];
+        parameterSimpleNames = new String[parameters.size()];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final TypeMirror erasure = types.erasure(parameters.get(i));
+            parameterTypes[i] = erasure.toString();
+            parameterSimpleNames[i] = simpleName(erasure, types);
+        }
+        returnsVoid = type.getReturnType().getKind() == TypeKind.VOID;
+        readOnly = isAnnotated(element, READ_ONLY);
+    }
+
+    private static boolean isAnnotated(final ExecutableElement element, final String annotation) {
+        // compared by name: the annotation is not on the classpath of the processor
+        for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String simpleName(final TypeMirror type, final Types types) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return simpleName(((ArrayType) type).getComponentType(), types) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) types.asElement(type)).getSimpleName().toString();
+        }
+        return type.toString();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getArity() {
+        return parameterTypes.length;
+    }
+
+    /**
+     * @return
+     *         fully qualified erased type of the parameter, as written in source code
+     */
+    String getParameterType(final int index) {
+        return parameterTypes[index];
+    }
+
+    /**
+     * @return
+     *         simple name of the parameter type, as given by Class.getSimpleName()
+     */
+    String getParameterSimpleName(final int index) {
+        return parameterSimpleNames[index];
+    }
+
+    boolean returnsVoid() {
+        return returnsVoid;
+    }
+
+    /**
+     * @return
+     *         true if the method is annotated with {@code ReadOnly}
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    String getSignature() {
+        final StringBuilder signature = new StringBuilder(name).append('(');
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameterTypes[i]);
+        }
+        return signature.append(')').toString();
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source code of a command generated for an API
+ * Methods are dispatched by name then by number of parameters, overloads having the same number of parameters are
+ * chosen at runtime by {@code GeneratedApiCommand.select}
+ * 
+ * @author Baptiste Mesta
+ */
+class CommandSource {
+
+    private static final Map<String, String> PARSERS = new HashMap<String, String>();
+
+    private static final Map<String, String> BOXED = new HashMap<String, String>();
+
+    static {
+        PARSERS.put("long", "asLong(%s)");
+        PARSERS.put("java.lang.Long", "Long.valueOf(asLong(%s))");
+        PARSERS.put("int", "asInt(%s)");
+        PARSERS.put("java.lang.Integer", "Integer.valueOf(asInt(%s))");
+        PARSERS.put("double", "asDouble(%s)");
+        PARSERS.put("java.lang.Double", "Double.valueOf(asDouble(%s))");
+        PARSERS.put("float", "asFloat(%s)");
+        PARSERS.put("java.lang.Float", "Float.valueOf(asFloat(%s))");
+        PARSERS.put("boolean", "asBoolean(%s)");
+        PARSERS.put("java.lang.Boolean", "Boolean.valueOf(asBoolean(%s))");
+        PARSERS.put("java.lang.String", "unquote(%s)");
+        BOXED.put("boolean", "java.lang.Boolean");
+        BOXED.put("byte", "java.lang.Byte");
+        BOXED.put("char", "java.lang.Character");
+        BOXED.put("short", "java.lang.Short");
+        BOXED.put("int", "java.lang.Integer");
+        BOXED.put("long", "java.lang.Long");
+        BOXED.put("float", "java.lang.Float");
+        BOXED.put("double", "java.lang.Double");
+    }
+
+    private final String packageName;
+
+    private final String className;
+
+    private final String apiName;
+
+    private final String apiType;
+
+    private final List<String> methodNames = new ArrayList<String>();
+
+    private final List<String> readOnlyMethodNames = new ArrayList<String>();
+
+    private final StringBuilder overloads = new StringBuilder();
+
+    private final StringBuilder helpCases = new StringBuilder();
+
+    private final StringBuilder invokeCases = new StringBuilder();
+
+    private final StringBuilder invokeMethods = new StringBuilder();
+
+    private final Map<String, String> overloadConstants = new HashMap<String, String>();
+
+    CommandSource(final String packageName, final String className, final String apiName, final String apiType) {
+        this.packageName = packageName;
+        this.className = className;
+        this.apiName = apiName;
+        this.apiType = apiType;
+    }
+
+    /**
+     * @param name
+     *            name of the method, methods must be added sorted by name
+     * @param byArity
+     *            overloads of the method by number of parameters
+     */
+    void addMethod(final String name, final Map<Integer, List<ApiMethod>> byArity) {
+        methodNames.add(name);
+        final StringBuilder help = new StringBuilder();
+        for (final List<ApiMethod> methods : byArity.values()) {
+            for (final ApiMethod method : methods) {
+                help.append(name).append('(');
+                for (int i = 0; i < method.getArity(); i++) {
+                    help.append(method.getParameterSimpleName(i)).append(", ");
+                }
+                help.append(")\n");
+                if (method.isReadOnly() && !readOnlyMethodNames.contains(name)) {
+                    readOnlyMethodNames.add(name);
+                }
+            }
+        }
+        helpCases.append("            case ").append(literal(name)).append(":\n");
+        helpCases.append("                return ").append(literal(help.toString())).append(";\n");
+
+        // one method per name: a single method dispatching everything would be too large to be compiled by the JIT
+        final String invokeMethod = "invoke_" + name;
+        invokeCases.append("            case ").append(literal(name)).append(":\n");
+        invokeCases.append("                return ").append(invokeMethod).append("(target, methodName, parameters);\n");
+        invokeMethods.append("    @SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        invokeMethods.append("    private Object ").append(invokeMethod).append("(final ").append(apiType)
+                .append(" target, final String methodName, final List<?> parameters) throws Exception {\n");
+        invokeMethods.append("        switch (parameters.size()) {\n");
+        for (final Map.Entry<Integer, List<ApiMethod>> entry : byArity.entrySet()) {
+            final List<ApiMethod> methods = entry.getValue();
+            invokeMethods.append("            case ").append(entry.getKey()).append(":\n");
+            if (methods.size() == 1) {
+                appendCall(methods.get(0), "                ");
+                continue;
+            }
+            final String constant = getOverloadsConstant(methods);
+            invokeMethods.append("                switch (select(parameters, ").append(constant).append(")) {\n");
+            for (int m = 0; m < methods.size(); m++) {
+                invokeMethods.append("                    case ").append(m).append(":\n");
+                appendCall(methods.get(m), "                        ");
+            }
+            invokeMethods.append("                    default:\n");
+            invokeMethods.append("                        throw noOverload(methodName, parameters);\n");
+            invokeMethods.append("                }\n");
+        }
+        invokeMethods.append("            default:\n");
+        invokeMethods.append("                throw noOverload(methodName, parameters);\n");
+        invokeMethods.append("        }\n");
+        invokeMethods.append("    }\n\n");
+    }
+
+    /**
+     * @return
+     *         name of the constant holding the parameter types of the overloads, shared by methods having the same overloads
+     */
+    private String getOverloadsConstant(final List<ApiMethod> methods) {
+        final StringBuilder value = new StringBuilder("{");
+        for (int m = 0; m < methods.size(); m++) {
+            value.append(m > 0 ? ", {" : " {");
+            final ApiMethod method = methods.get(m);
+            for (int i = 0; i < method.getArity(); i++) {
+                value.append(i > 0 ? ", " : " ").append(method.getParameterType(i)).append(".class");
+            }
+            value.append(" }");
+        }
+        value.append(" }");
+        String constant = overloadConstants.get(value.toString());
+        if (constant == null) {
+            constant = "OVERLOADS_" + overloadConstants.size();
+            overloadConstants.put(value.toString(), constant);
+            overloads.append("    private static final Class<?>[][] ").append(constant).append(" = ").append(value).append(";\n\n");
+        }
+        return constant;
+    }
+
+    private void appendCall(final ApiMethod method, final String indent) {
+        invokeMethods.append(indent);
+        if (!method.returnsVoid()) {
+            invokeMethods.append("return ");
+        }
+        invokeMethods.append("target.").append(method.getName()).append('(');
+        for (int i = 0; i < method.getArity(); i++) {
+            if (i > 0) {
+                invokeMethods.append(", ");
+            }
+            appendArgument(method.getParameterType(i), "parameters.get(" + i + ")");
+        }
+        invokeMethods.append(");\n");
+        if (method.returnsVoid()) {
+            invokeMethods.append(indent).append("return null;\n");
+        }
+    }
+
+    private void appendArgument(final String type, final String parameter) {
+        final String parser = PARSERS.get(type);
+        if (parser != null) {
+            invokeMethods.append(String.format(parser, parameter));
+            return;
+        }
+        final String castType = BOXED.containsKey(type) ? BOXED.get(type) : type;
+        invokeMethods.append('(').append(castType).append(") convert(").append(type).append(".class, ").append(parameter).append(')');
+    }
+
+    private static String literal(final String value) {
+        final StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '"':
+                case '\\':
+                    literal.append('\\').append(c);
+                    break;
+                default:
+                    literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import java.util.Arrays;\n");
+        source.append("import java.util.Collections;\n");
+        source.append("import java.util.List;\n\n");
+        source.append("import org.bonitasoft.shell.ShellContext;\n");
+        source.append("import org.bonitasoft.shell.command.GeneratedApiCommand;\n");
+        source.append("import org.bonitasoft.shell.converter.ConverterRegistry;\n\n");
+        source.append("/**\n");
+        source.append(" * Command calling ").append(apiType).append(", generated by ").append(ShellApiProcessor.class.getName()).append('\n');
+        source.append(" */\n");
+        source.append("public class ").append(className).append("<T extends ShellContext> extends GeneratedApiCommand<T> {\n\n");
+        source.append("    private static final List<String> METHOD_NAMES = Collections.unmodifiableList(Arrays.asList(");
+        for (int i = 0; i < methodNames.size(); i++) {
+            source.append(i > 0 ? ", " : "").append(literal(methodNames.get(i)));
+        }
+        source.append("));\n\n");
+        source.append(overloads);
+        source.append("    public ").append(className).append("() {\n");
+        source.append("        this(ConverterRegistry.getDefault());\n");
+        source.append("    }\n\n");
+        source.append("    public ").append(className).append("(final ConverterRegistry converterRegistry) {\n");
+        source.append("        super(").append(literal(apiName)).append(", converterRegistry);\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public List<String> getMethodNames() {\n");
+        source.append("        return METHOD_NAMES;\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    public String getMethodHelp(final String methodName) {\n");
+        source.append("        if (methodName == null) {\n");
+        source.append("            return null;\n");
+        source.append("        }\n");
+        source.append("        switch (methodName) {\n");
+        source.append(helpCases);
+        source.append("            default:\n");
+        source.append("                return null;\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+        if (!readOnlyMethodNames.isEmpty()) {
+            source.append("    @Override\n");
+            source.append("    protected boolean isReadOnly(final String methodName) {\n");
+            source.append("        switch (methodName) {\n");
+            for (final String name : readOnlyMethodNames) {
+                source.append("            case ").append(literal(name)).append(":\n");
+            }
+            source.append("                return true;\n");
+            source.append("            default:\n");
+            source.append("                return false;\n");
+            source.append("        }\n");
+            source.append("    }\n\n");
+        }
+        source.append("    @Override\n");
+        source.append("    protected Object invoke(final Object api, final String methodName, final List<?> parameters) throws Exception {\n");
+        source.append("        final ").append(apiType).append(" target = (").append(apiType).append(") api;\n");
+        source.append("        switch (methodName) {\n");
+        source.append(invokeCases);
+        source.append("            default:\n");
+        source.append("                throw noSuchMethod(methodName);\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+        source.append(invokeMethods);
+        source.append("}\n");
+        return source.toString();
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+import org.bonitasoft.shell.command.ShellApi;
+
+/**
+ * Generate a {@link org.bonitasoft.shell.command.GeneratedApiCommand} for each type annotated with {@link ShellApi}
+ * The generated command knows the methods of the API at compile time: it calls them without reflection
+ * 
+ * @author Baptiste Mesta
+ */
+@SupportedAnnotationTypes("org.bonitasoft.shell.command.ShellApi")
+public class ShellApiProcessor extends AbstractProcessor {
+
+    private static final String COMMAND_SUFFIX = "Command";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final Element element : roundEnv.getElementsAnnotatedWith(ShellApi.class)) {
+            final ShellApi shellApi = element.getAnnotation(ShellApi.class);
+            final TypeElement api = getApi(element, shellApi);
+            final String packageName = getPackage(element).getQualifiedName().toString();
+            final String className = shellApi.className().isEmpty() ? api.getSimpleName() + COMMAND_SUFFIX : shellApi.className();
+            final String qualifiedName = packageName.isEmpty() ? className : packageName + '.' + className;
+            final CommandSource source = new CommandSource(packageName, className, shellApi.value(), api.getQualifiedName().toString());
+            for (final Map.Entry<String, Map<Integer, List<ApiMethod>>> entry : getMethods(api).entrySet()) {
+                source.addMethod(entry.getKey(), entry.getValue());
+            }
+            try {
+                final Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, element).openWriter();
+                try {
+                    writer.write(source.toString());
+                } finally {
+                    writer.close();
+                }
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Kind.ERROR, "unable to generate " + qualifiedName + ": " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private TypeElement getApi(final Element element, final ShellApi shellApi) {
+        TypeMirror apiType;
+        try {
+            shellApi.api();
+            // only happens if the class is already compiled, it is never the case of annotation values
+            apiType = element.asType();
+        } catch (final MirroredTypeException e) {
+            apiType = e.getTypeMirror();
+        }
+        if (apiType.getKind() == TypeKind.VOID) {
+            return (TypeElement) element;
+        }
+        return (TypeElement) processingEnv.getTypeUtils().asElement(apiType);
+    }
+
+    private static PackageElement getPackage(final Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+    /**
+     * @return
+     *         public methods of the API by name and by number of parameters, overloads sorted by signature
+     */
+    private Map<String, Map<Integer, List<ApiMethod>>> getMethods(final TypeElement api) {
+        final Map<String, Map<Integer, List<ApiMethod>>> methods = new TreeMap<String, Map<Integer, List<ApiMethod>>>();
+        final DeclaredType apiType = (DeclaredType) api.asType();
+        final boolean isInterface = api.getKind() == ElementKind.INTERFACE;
+        for (final Element member : processingEnv.getElementUtils().getAllMembers(api)) {
+            if (member.getKind() != ElementKind.METHOD || !member.getModifiers().contains(Modifier.PUBLIC)
+                    || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (isInterface && ((TypeElement) member.getEnclosingElement()).getQualifiedName().contentEquals(Object.class.getName())) {
+                continue;
+            }
+            final ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(apiType, member);
+            final ApiMethod method = new ApiMethod((ExecutableElement) member, methodType, processingEnv.getTypeUtils());
+            Map<Integer, List<ApiMethod>> byArity = methods.get(method.getName());
+            if (byArity == null) {
+                byArity = new TreeMap<Integer, List<ApiMethod>>();
+                methods.put(method.getName(), byArity);
+            }
+            List<ApiMethod> overloads = byArity.get(method.getArity());
+            if (overloads == null) {
+                overloads = new ArrayList<ApiMethod>();
+                byArity.put(method.getArity(), overloads);
+            }
+            overloads.add(method);
+        }
+        for (final Map<Integer, List<ApiMethod>> byArity : methods.values()) {
+            for (final List<ApiMethod> overloads : byArity.values()) {
+                Collections.sort(overloads, new Comparator<ApiMethod>() {
+
+                    @Override
+                    public int compare(final ApiMethod o1, final ApiMethod o2) {
+                        return o1.getSignature().compareTo(o2.getSignature());
+                    }
+                });
+            }
+        }
+        return methods;
+    }
+
+}
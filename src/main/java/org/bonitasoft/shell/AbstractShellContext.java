@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base context that keeps API objects once created
+ * APIs are created once per session and API name, and forgotten on login and logout
+ * 
+ * @author Baptiste Mesta
+ */
+public abstract class AbstractShellContext implements ShellContext {
+
+    /**
+     * replaced (not cleared) once the session has changed, so that an API created for a previous session
+     * by a concurrent call can't end up in the cache of the new one
+     */
+    private volatile ConcurrentMap<String, Object> apis = new ConcurrentHashMap<String, Object>();
+
+    @Override
+    public final Object getApi(final String apiName) throws Exception {
+        final ConcurrentMap<String, Object> sessionApis = apis;
+        Object api = sessionApis.get(apiName);
+        if (api == null) {
+            api = createApi(apiName);
+            final Object existing = sessionApis.putIfAbsent(apiName, api);
+            if (existing != null) {
+                api = existing;
+            }
+        }
+        return api;
+    }
+
+    @Override
+    public final void login(final String username, final String password) throws Exception {
+        try {
+            doLogin(username, password);
+        } finally {
+            // APIs created while logging in may belong to the previous session
+            invalidateApis();
+        }
+    }
+
+    @Override
+    public final void logout() throws Exception {
+        try {
+            doLogout();
+        } finally {
+            invalidateApis();
+        }
+    }
+
+    /**
+     * forget all APIs, they will be created again on next call to {@link #getApi(String)}
+     */
+    protected void invalidateApis() {
+        apis = new ConcurrentHashMap<String, Object>();
+    }
+
+    /**
+     * called the first time an API is requested in the current session
+     * 
+     * @param apiName
+     * @return
+     *         the API object
+     * @throws Exception
+     */
+    protected abstract Object createApi(String apiName) throws Exception;
+
+    protected abstract void doLogin(String username, String password) throws Exception;
+
+    protected abstract void doLogout() throws Exception;
+
+}
@@ -6,19 +6,56 @@
  */
 package org.bonitasoft.shell;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import jline.console.ConsoleReader;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.bonitasoft.shell.cache.ResultCache;
 import org.bonitasoft.shell.color.PrintColor;
+import org.bonitasoft.shell.color.ShellOutput;
+import org.bonitasoft.shell.command.ApiCommand;
+import org.bonitasoft.shell.command.CacheCommand;
+import org.bonitasoft.shell.command.CancelCommand;
+import org.bonitasoft.shell.command.GroovyCommand;
 import org.bonitasoft.shell.command.HelpCommand;
+import org.bonitasoft.shell.command.JobsCommand;
+import org.bonitasoft.shell.command.LazyShellCommand;
+import org.bonitasoft.shell.command.LoginCommand;
+import org.bonitasoft.shell.command.LogoutCommand;
+import org.bonitasoft.shell.command.ParallelCommand;
 import org.bonitasoft.shell.command.ShellCommand;
-import org.bonitasoft.shell.completer.CommandArgumentsCompleter;
-import org.bonitasoft.shell.completer.ReflectCandidateListCompletionHandler;
+import org.bonitasoft.shell.command.ShellCommandFactory;
+import org.bonitasoft.shell.command.StatsCommand;
+import org.bonitasoft.shell.command.WaitCommand;
+import org.bonitasoft.shell.groovy.GroovyScriptCache;
+import org.bonitasoft.shell.history.PersistentHistory;
+import org.bonitasoft.shell.job.Job;
+import org.bonitasoft.shell.job.JobManager;
+import org.bonitasoft.shell.metrics.CommandListener;
+import org.bonitasoft.shell.metrics.CommandMetrics;
+import org.bonitasoft.shell.pipeline.Pipeline;
+import org.bonitasoft.shell.render.ResultRenderer;
+import org.bonitasoft.shell.server.ShellServer;
 
 /**
  * A basic shell
@@ -34,13 +71,92 @@ public abstract class BaseShell<T extends ShellContext> {
 
     static final String HELP = "help";
 
+    private static final String BATCH = "--batch";
+
+    private static final String FAIL_FAST = "--fail-fast";
+
+    private static final String SERVER = "--server";
+
+    private static final String GROOVY = "groovy";
+
+    private static final String GROOVY_EXTENSION = ".groovy";
+
+    private static final String BACKGROUND = "&";
+
+    private static final String PARSE_METRIC = "<parse>";
+
+    private static final String PIPELINE_METRIC = "<pipeline>";
+
+    private static final String METRICS_MBEAN_DOMAIN = "org.bonitasoft.shell:type=CommandMetrics";
+
+    /**
+     * system property giving a file where metrics are written as CSV when the shell is destroyed
+     */
+    public static final String METRICS_CSV_PROPERTY = "shell.metrics.csv";
+
+    /**
+     * exit status of {@link #start(String[])} when everything was executed
+     */
+    public static final int EXIT_OK = 0;
+
+    /**
+     * exit status of {@link #start(String[])} when a command failed
+     */
+    public static final int EXIT_FAILED = 1;
+
+    /**
+     * exit status of {@link #start(String[])} when the command does not exist or its arguments are not valid
+     */
+    public static final int EXIT_USAGE = 2;
+
+    private static final int POOL_MAX_IDLE = 16;
+
+    private static final int HISTORY_MAX_SIZE = 100000;
+
+    private static final long POOL_IDLE_TIMEOUT = 5 * 60 * 1000;
+
     private HashMap<String, ShellCommand<T>> commands;
 
     private HelpCommand<T> helpCommand;
 
+    private boolean colorInstalled;
+
+    private ShellContextPool<T> contextPool;
+
+    private final CommandMetrics metrics = new CommandMetrics();
+
+    private final List<CommandListener> listeners = new CopyOnWriteArrayList<CommandListener>(Arrays.asList((CommandListener) metrics));
+
+    private ObjectName metricsName;
+
+    private JobManager jobManager;
+
+    private ShellOutput output;
+
+    private ResultCache resultCache;
+
+    private boolean measureAllocations = true;
+
+    private boolean foregroundOnly;
+
+    private File metricsCsvFile = System.getProperty(METRICS_CSV_PROPERTY) != null ? new File(System.getProperty(METRICS_CSV_PROPERTY)) : null;
+
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    private final ThreadLocal<Tokenizer> tokenizers = new ThreadLocal<Tokenizer>() {
+
+        @Override
+        protected Tokenizer initialValue() {
+            return new Tokenizer();
+        }
+    };
+
 
     public void init() throws Exception {
-        final List<ShellCommand<T>> commandList = initShellCommands();
+        init(initShellCommands());
+    }
+
+    private void init(final List<ShellCommand<T>> commandList) throws Exception {
         commands = new HashMap<String, ShellCommand<T>>();
         for (final ShellCommand<T> shellCommand : commandList) {
             commands.put(shellCommand.getName(), shellCommand);
@@ -49,8 +165,94 @@ public abstract class BaseShell<T extends ShellContext> {
         if (helpCommand != null) {
             commands.put(helpCommand.getName(), helpCommand);
         }
-        PrintColor.init();
+        if (resultCache == null) {
+            resultCache = createResultCache();
+        }
+        if (resultCache != null) {
+            useResultCache(commandList);
+            final CacheCommand<T> cacheCommand = new CacheCommand<T>(resultCache);
+            commands.put(cacheCommand.getName(), cacheCommand);
+        }
+        addGroovyCommand();
+        if (jobManager == null) {
+            jobManager = new JobManager(getMaxConcurrentJobs());
+        }
+        final JobsCommand<T> jobsCommand = new JobsCommand<T>(jobManager);
+        commands.put(jobsCommand.getName(), jobsCommand);
+        final WaitCommand<T> waitCommand = new WaitCommand<T>(jobManager);
+        commands.put(waitCommand.getName(), waitCommand);
+        final CancelCommand<T> cancelCommand = new CancelCommand<T>(jobManager);
+        commands.put(cancelCommand.getName(), cancelCommand);
+        final StatsCommand<T> statsCommand = new StatsCommand<T>(metrics);
+        commands.put(statsCommand.getName(), statsCommand);
+        registerMetricsMBean();
+        final ShellContextFactory<T> contextFactory = getContextFactory();
+        if (contextFactory != null) {
+            if (contextPool == null) {
+                contextPool = createContextPool(contextFactory);
+            }
+            final ParallelCommand<T> parallelCommand = new ParallelCommand<T>(this, contextPool);
+            commands.put(parallelCommand.getName(), parallelCommand);
+        }
+    }
+
+    private void useResultCache(final List<ShellCommand<T>> commandList) {
+        for (final ShellCommand<T> shellCommand : commandList) {
+            if (shellCommand instanceof ApiCommand) {
+                ((ApiCommand) shellCommand).setResultCache(resultCache);
+            } else if (shellCommand instanceof LoginCommand) {
+                ((LoginCommand<T>) shellCommand).setResultCache(resultCache);
+            } else if (shellCommand instanceof LogoutCommand) {
+                ((LogoutCommand<T>) shellCommand).setResultCache(resultCache);
+            } else if (shellCommand instanceof LazyShellCommand) {
+                // keep it lazy: the cache is given to the command when it is created
+                final LazyShellCommand<T> lazyCommand = (LazyShellCommand<T>) shellCommand;
+                commands.put(lazyCommand.getName(), new LazyShellCommand<T>(lazyCommand.getName(), new ShellCommandFactory<T>() {
+
+                    @Override
+                    public ShellCommand<T> create() {
+                        final ShellCommand<T> command = lazyCommand.getDelegate();
+                        if (command instanceof ApiCommand) {
+                            ((ApiCommand) command).setResultCache(resultCache);
+                        }
+                        return command;
+                    }
+                }));
+            }
+        }
+    }
+
+    private void addGroovyCommand() {
+        // groovy is only loaded when a script is executed
+        final HashMap<String, ShellCommand<T>> shellCommands = commands;
+        commands.put(GROOVY, new LazyShellCommand<T>(GROOVY, new ShellCommandFactory<T>() {
+
+            @Override
+            public ShellCommand<T> create() {
+                return new GroovyCommand<T>(shellCommands, new GroovyScriptCache(BaseShell.this.getClass().getClassLoader(),
+                        getGroovyCacheDirectory()));
+            }
+        }));
+    }
 
+    /**
+     * Create only the commands needed to execute the given command once: the commands of {@link #initShellCommands()}
+     * and groovy. Other built-in commands need a full {@link #init()}
+     * 
+     * @param name
+     *            name of the command to execute
+     * @param commandList
+     *            the commands of {@link #initShellCommands()}
+     * @return
+     *         true if the command was found
+     */
+    private boolean initCommand(final String name, final List<ShellCommand<T>> commandList) {
+        commands = new HashMap<String, ShellCommand<T>>();
+        for (final ShellCommand<T> shellCommand : commandList) {
+            commands.put(shellCommand.getName(), shellCommand);
+        }
+        addGroovyCommand();
+        return commands.containsKey(name);
     }
 
     /**
@@ -61,6 +263,99 @@ public abstract class BaseShell<T extends ShellContext> {
         return new HelpCommand<T>(commands);
     }
 
+    /**
+     * factory used to create additional contexts, e.g. for the parallel command
+     * Can be overridden, the parallel command is available only if this returns a factory
+     * 
+     * @return
+     *         the factory or null if contexts can't be created by the shell
+     */
+    protected ShellContextFactory<T> getContextFactory() {
+        return null;
+    }
+
+    /**
+     * pool of contexts created using the {@link #getContextFactory()}
+     * Can be overridden to change the size or the idle timeout of the pool
+     * 
+     * @param contextFactory
+     * @return
+     *         the pool used by the shell
+     */
+    protected ShellContextPool<T> createContextPool(final ShellContextFactory<T> contextFactory) {
+        return new ShellContextPool<T>(contextFactory, POOL_MAX_IDLE, POOL_IDLE_TIMEOUT);
+    }
+
+    /**
+     * cache of the results of read-only API calls, see {@link ResultCache}
+     * Can be overridden, results are cached only if this returns a cache
+     * 
+     * @return
+     *         the cache or null to call the APIs every time
+     */
+    protected ResultCache createResultCache() {
+        return null;
+    }
+
+    /**
+     * number of background jobs (commands ending with &amp;) that can run at the same time
+     * Can be overridden
+     */
+    protected int getMaxConcurrentJobs() {
+        return 4;
+    }
+
+    /**
+     * directory where compiled groovy scripts are kept between runs, it is made private to the user
+     * Can be overridden, it must not be shared with other users: classes found there are executed
+     * 
+     * @return
+     *         the directory or null to keep compiled scripts in memory only
+     */
+    protected File getGroovyCacheDirectory() {
+        return new File(System.getProperty("user.home"), ".bonita_shell_groovy_cache");
+    }
+
+    /**
+     * file where the lines typed in the console are kept between runs, see {@link PersistentHistory}
+     * Can be overridden
+     * 
+     * @return
+     *         the file or null to keep the history in memory only
+     */
+    protected File getHistoryFile() {
+        return new File(System.getProperty("user.home"), ".bonita_shell_history");
+    }
+
+    /**
+     * @return
+     *         the history of the console, null if it is kept in memory only
+     */
+    PersistentHistory openHistory() {
+        final File historyFile = getHistoryFile();
+        if (historyFile == null) {
+            return null;
+        }
+        try {
+            final PersistentHistory history = new PersistentHistory(historyFile, HISTORY_MAX_SIZE, new PersistentHistory.Filter() {
+
+                @Override
+                public boolean isKept(final String line) {
+                    final String name = line.trim().split("\\s+", 2)[0];
+                    final ShellCommand<T> command = commands.get(name);
+                    return command == null || !command.hasCredentials();
+                }
+            });
+            if (history.isReadOnly()) {
+                System.err.println("History " + historyFile + " is used by another shell, lines of this one are not saved");
+            }
+            return history;
+        } catch (final IOException e) {
+            System.err.println("History not saved: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * @return list of commands contributed to the shell
      * @throws Exception
@@ -73,44 +368,574 @@ public abstract class BaseShell<T extends ShellContext> {
      * @throws Exception
      */
     public void destroy() throws Exception {
-        PrintColor.clean();
+        if (jobManager != null) {
+            jobManager.shutdown();
+            jobManager = null;
+        }
+        unregisterMetricsMBean();
+        if (metricsCsvFile != null) {
+            metrics.writeCsv(metricsCsvFile);
+        }
+        if (contextPool != null) {
+            contextPool.close();
+        }
+        if (colorInstalled) {
+            PrintColor.clean();
+            colorInstalled = false;
+        }
     }
 
-    public void run(final InputStream in, final OutputStream out) throws Exception {
+    /**
+     * entry point to call from a main:
+     * with --batch [--fail-fast] &lt;file|-&gt; the commands of the file (or of the standard input) are executed
+     * without console, with &lt;script.groovy&gt; [arguments] the groovy script is executed,
+     * with &lt;command&gt; [arguments] the command is executed once (see {@link #runOnce(List)}),
+     * with --server &lt;port&gt; sessions are served to local clients (see {@link #runServer(InetSocketAddress)}),
+     * otherwise the interactive shell is started
+     * 
+     * @param args
+     *            arguments given to the main
+     * @return
+     *         the exit status
+     * @throws Exception
+     */
+    public int start(final String[] args) throws Exception {
+        if (args.length > 0 && BATCH.equals(args[0])) {
+            return runBatch(Arrays.asList(args).subList(1, args.length));
+        }
+        if (args.length == 2 && SERVER.equals(args[0])) {
+            return runServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1])));
+        }
+        if (args.length > 0 && args[0].endsWith(GROOVY_EXTENSION)) {
+            return runGroovyScript(Arrays.asList(args)) ? EXIT_OK : EXIT_FAILED;
+        }
+        if (args.length > 0) {
+            return runOnce(Arrays.asList(args));
+        }
+        run(System.in, System.out);
+        return EXIT_OK;
+    }
+
+    /**
+     * Execute a single command without console, banner, completion, colors or JMX: made to be called from scripts
+     * Only the commands given by {@link #initShellCommands()} are created when the command is one of them, and they
+     * are not initialized until they are executed.
+     * 
+     * @param commandAndArgs
+     *            name of the command followed by its arguments, already split
+     * @return
+     *         {@link #EXIT_OK} if the command was executed, {@link #EXIT_FAILED} if it threw an exception,
+     *         {@link #EXIT_USAGE} if the command does not exist or its arguments are not valid
+     * @throws Exception
+     */
+    public int runOnce(final List<String> commandAndArgs) throws Exception {
+        final String name = commandAndArgs.get(0);
+        final List<ShellCommand<T>> commandList = initShellCommands();
+        if (!initCommand(name, commandList)) {
+            // built-in commands such as parallel or stats
+            init(commandList);
+        }
+        // measuring allocations loads JMX, only worth it when metrics are kept
+        final boolean measuredAllocations = measureAllocations;
+        measureAllocations = metricsCsvFile != null;
+        final ShellOutput previous = ShellOutput.bind(getOutput());
+        try {
+            return executeCommand(new ArrayList<String>(commandAndArgs), getContext()) ? EXIT_OK : EXIT_USAGE;
+        } catch (final Exception e) {
+            e.printStackTrace();
+            return EXIT_FAILED;
+        } finally {
+            ShellOutput.restore(previous);
+            measureAllocations = measuredAllocations;
+            destroy();
+        }
+    }
+
+    /**
+     * Serve shell sessions until the JVM is stopped, see {@link ShellServer}
+     * Each connection gets its own context from {@link #getContextFactory()}, clients must log in before executing
+     * other commands than {@link #getRemoteCommands()}.
+     * There is no other authentication: listen to a local address only
+     * 
+     * @param address
+     *            address to listen to
+     * @return
+     *         {@link #EXIT_USAGE} if the shell has no context factory, {@link #EXIT_OK} when the server is stopped
+     * @throws Exception
+     */
+    public int runServer(final InetSocketAddress address) throws Exception {
+        return runServer(address, null);
+    }
+
+    /**
+     * @param address
+     *            address to listen to
+     * @param remoteCommands
+     *            names of the commands the clients can execute, null for {@link #getRemoteCommands()}
+     * @return
+     *         {@link #EXIT_USAGE} if the shell has no context factory, {@link #EXIT_OK} when the server is stopped
+     * @throws Exception
+     * @see #runServer(InetSocketAddress)
+     */
+    public int runServer(final InetSocketAddress address, final Collection<String> remoteCommands) throws Exception {
+        final ShellContextFactory<T> contextFactory = getContextFactory();
+        if (contextFactory == null) {
+            System.err.println("The shell must have a context factory to serve sessions");
+            return EXIT_USAGE;
+        }
+        final ShellServer<T> server = new ShellServer<T>(this, contextFactory, address, remoteCommands);
+        server.start();
+        System.err.println("Listening on " + server.getAddress());
+        server.awaitTermination();
+        return EXIT_OK;
+    }
+
+    private int runBatch(final List<String> args) throws Exception {
+        boolean failFast = false;
+        String file = null;
+        for (final String arg : args) {
+            if (FAIL_FAST.equals(arg)) {
+                failFast = true;
+            } else if (file == null && ("-".equals(arg) || !arg.startsWith("--"))) {
+                file = arg;
+            } else {
+                System.err.println("Usage: " + BATCH + " [" + FAIL_FAST + "] <file|->");
+                return EXIT_USAGE;
+            }
+        }
+        final Reader reader;
+        if (file == null || "-".equals(file)) {
+            reader = new InputStreamReader(System.in);
+        } else {
+            reader = new FileReader(file);
+        }
+        try {
+            return runScript(reader, failFast) == 0 ? EXIT_OK : EXIT_FAILED;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Execute a groovy script without console
+     * 
+     * @param scriptAndArgs
+     *            path of the script followed by its arguments
+     * @return
+     *         true if the script was executed without error
+     * @throws Exception
+     */
+    public boolean runGroovyScript(final List<String> scriptAndArgs) throws Exception {
+        init();
+        try {
+            final List<String> line = new ArrayList<String>(scriptAndArgs.size() + 1);
+            line.add(GROOVY);
+            line.addAll(scriptAndArgs);
+            return executeCommand(line, getContext());
+        } finally {
+            destroy();
+        }
+    }
+
+    /**
+     * Execute commands line by line without console, prompt, completion or colors
+     * Empty lines and lines starting with # are ignored
+     * Lines ending with &amp; are executed in the foreground: jobs would be stopped when the script ends
+     * The duration of each line is reported on the error output
+     * 
+     * @param script
+     *            the commands to execute
+     * @param failFast
+     *            if true stop at the first line that fails
+     * @return
+     *         the number of lines that failed
+     * @throws Exception
+     */
+    public int runScript(final Reader script, final boolean failFast) throws Exception {
         init();
-        printWelcomeMessage();
-        final ConsoleReader reader = new ConsoleReader(in, out);
-        reader.setBellEnabled(false);
-        final CommandArgumentsCompleter<T> commandArgumentsCompleter = new CommandArgumentsCompleter<T>(commands);
-
-        reader.setCompletionHandler(new ReflectCandidateListCompletionHandler());
-        reader.addCompleter(commandArgumentsCompleter);
-
-        String line;
-        while ((line = reader.readLine("\n" + getPrompt())) != null) {
-            final List<String> args = parse(line);
-            final String command = args.remove(0);
-            if (commands.containsKey(command)) {
-                final ShellCommand<T> clientCommand = commands.get(command);
-                if (clientCommand.validate(args)) {
-                    try {
-                        clientCommand.execute(args, getContext());
-                    } catch (final Exception e) {
-                        e.printStackTrace();
+        final BufferedReader reader = script instanceof BufferedReader ? (BufferedReader) script : new BufferedReader(script);
+        int lineNumber = 0;
+        int executed = 0;
+        int failed = 0;
+        final long scriptStart = System.nanoTime();
+        final ShellOutput previous = ShellOutput.bind(getOutput());
+        foregroundOnly = true;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                final String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+                    continue;
+                }
+                if ("exit".equals(trimmed)) {
+                    break;
+                }
+                executed++;
+                final long start = System.nanoTime();
+                boolean success;
+                try {
+                    success = executeLine(trimmed, getContext());
+                } catch (final Exception e) {
+                    e.printStackTrace();
+                    success = false;
+                }
+                final long durationMillis = (System.nanoTime() - start) / 1000000;
+                System.err.println("line " + lineNumber + (success ? " ok " : " failed ") + durationMillis + " ms");
+                if (!success) {
+                    failed++;
+                    if (failFast) {
+                        break;
                     }
-                } else {
-                    clientCommand.printHelp();
                 }
-            } else if ("exit".equals(line)) {
-                System.out.println("Exiting application");
-                destroy();
-                return;
-            } else {
-                System.out.println("Wrong argument");
-                helpCommand.printHelp();
             }
+        } finally {
+            foregroundOnly = false;
+            ShellOutput.restore(previous);
+            System.err.println(executed + " commands executed, " + failed + " failed in " + (System.nanoTime() - scriptStart) / 1000000 + " ms");
+            destroy();
+        }
+        return failed;
+    }
+
+    public void run(final InputStream in, final OutputStream out) throws Exception {
+        init();
+        PrintColor.init();
+        colorInstalled = true;
+        final ShellOutput sessionOutput = output != null || out == System.out ? getOutput() : new ShellOutput(out, true);
+        try {
+            new ShellSession<T>(this, getContext(), in, out, sessionOutput, true).run();
+        } finally {
+            destroy();
+        }
+    }
+
+    /**
+     * @param context
+     *            context of the session, e.g. given by {@link #getContextFactory()}
+     * @param in
+     *            lines to execute
+     * @param out
+     *            output of the commands
+     * @return
+     *         a session executing lines on this shell, it must be initialized using {@link #init()}
+     */
+    public ShellSession<T> newSession(final T context, final InputStream in, final OutputStream out) {
+        return new ShellSession<T>(this, context, in, out);
+    }
+
+    /**
+     * run a new session on its own thread, virtual when possible, see {@link ShellThreads}
+     * 
+     * @param context
+     * @param in
+     * @param out
+     * @return
+     *         the thread running the session, it ends with the session
+     */
+    public Thread startSession(final T context, final InputStream in, final OutputStream out) {
+        return ShellThreads.start(newSession(context, in, out), "shell-session-" + sessionCount.incrementAndGet());
+    }
+
+    /**
+     * Parse and execute a line, can be called concurrently with different contexts
+     * 
+     * @param line
+     * @param context
+     * @return
+     *         true if the command exists, its arguments are valid and it was executed
+     * @throws Exception
+     *             exception thrown by the command
+     */
+    public boolean executeLine(final String line, final T context) throws Exception {
+        return executeLine(line, context, commands);
+    }
+
+    /**
+     * Parse and execute a line using only some of the commands of the shell, e.g. the ones of a remote session
+     * 
+     * @param line
+     * @param context
+     * @param availableCommands
+     *            commands that can be executed, see {@link #restrictCommands(Collection)}
+     * @return
+     *         true if the command exists, its arguments are valid and it was executed
+     * @throws Exception
+     *             exception thrown by the command
+     */
+    public boolean executeLine(final String line, final T context, final HashMap<String, ShellCommand<T>> availableCommands) throws Exception {
+        final long start = System.nanoTime();
+        final List<String> parsed = parse(line);
+        fireCommandExecuted(PARSE_METRIC, System.nanoTime() - start, -1, null);
+        if (isBackground(parsed) && !foregroundOnly) {
+            final Job job = jobManager.submit(line, context, new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() throws Exception {
+                    return executeCommand(parsed, context, availableCommands);
+                }
+            });
+            ShellOutput.current().println("[" + job.getId() + "] started");
+            ShellOutput.current().flush();
+            return true;
+        }
+        return executeCommand(parsed, context, availableCommands);
+    }
+
+    /**
+     * check if the line ends with &amp; and remove it
+     */
+    private boolean isBackground(final List<String> parsed) {
+        if (jobManager == null || parsed.isEmpty()) {
+            return false;
+        }
+        final int last = parsed.size() - 1;
+        final String lastToken = parsed.get(last);
+        if (BACKGROUND.equals(lastToken)) {
+            parsed.remove(last);
+            return !parsed.isEmpty();
+        }
+        if (lastToken.endsWith(BACKGROUND) && lastToken.charAt(0) != '"') {
+            parsed.set(last, lastToken.substring(0, lastToken.length() - 1));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param context
+     *            context of the session that started the jobs
+     * @return
+     *         notification of the jobs finished since last call, each one on a new line
+     */
+    public String finishedJobs(final T context) {
+        if (jobManager == null) {
+            return "";
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final Job job : jobManager.pollFinishedJobs(context)) {
+            builder.append('\n').append(job);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * cancel the running jobs of a session and forget its jobs, called when the session ends
+     * 
+     * @param context
+     *            context of the session
+     */
+    public void releaseJobs(final T context) {
+        if (jobManager != null) {
+            jobManager.release(context);
+        }
+    }
+
+    /**
+     * Execute a parsed line: the first element is the name of the command, others are its arguments
+     * 
+     * @param line
+     *            the parsed line, it is modified by this method
+     * @param context
+     * @return
+     *         true if the command exists, its arguments are valid and it was executed
+     * @throws Exception
+     *             exception thrown by the command
+     */
+    protected boolean executeCommand(final List<String> line, final T context) throws Exception {
+        return executeCommand(line, context, commands);
+    }
+
+    private boolean executeCommand(final List<String> line, final T context, final HashMap<String, ShellCommand<T>> availableCommands)
+            throws Exception {
+        if (line.isEmpty()) {
+            return false;
+        }
+        try {
+            if (Pipeline.isPipeline(line)) {
+                return executePipeline(line, context, availableCommands);
+            }
+            return doExecuteCommand(line, context, availableCommands);
+        } finally {
+            // text of the command is buffered until it is finished
+            ShellOutput.current().flush();
+        }
+    }
+
+    private boolean executePipeline(final List<String> line, final T context, final HashMap<String, ShellCommand<T>> availableCommands)
+            throws Exception {
+        final List<List<String>> stages = Pipeline.split(line);
+        final ResultRenderer renderer = ResultRenderer.fromArguments(stages.get(stages.size() - 1));
+        final long start = System.nanoTime();
+        final Object result;
+        try {
+            result = new Pipeline(availableCommands).execute(stages, context);
+        } catch (final Exception e) {
+            fireCommandExecuted(PIPELINE_METRIC, System.nanoTime() - start, -1, e);
+            throw e;
+        }
+        fireCommandExecuted(PIPELINE_METRIC, System.nanoTime() - start, -1, null);
+        renderer.render(result, ShellOutput.current().getWriter());
+        return true;
+    }
+
+    private boolean doExecuteCommand(final List<String> line, final T context, final HashMap<String, ShellCommand<T>> availableCommands)
+            throws Exception {
+        final String command = line.remove(0);
+        final ShellCommand<T> clientCommand = availableCommands.get(command);
+        if (clientCommand == null) {
+            ShellOutput.current().println("Wrong argument");
+            final ShellCommand<T> help = helpCommand != null ? availableCommands.get(helpCommand.getName()) : null;
+            if (help != null) {
+                help.printHelp();
+            }
+            return false;
+        }
+        if (!clientCommand.validate(line)) {
+            clientCommand.printHelp();
+            return false;
+        }
+        final String metricName = clientCommand.getMetricName(line);
+        final long allocatedBefore = measureAllocations ? CommandMetrics.currentThreadAllocatedBytes() : -1;
+        final long start = System.nanoTime();
+        try {
+            clientCommand.execute(line, context);
+        } catch (final Exception e) {
+            fireCommandExecuted(metricName, System.nanoTime() - start, allocatedSince(allocatedBefore), e);
+            throw e;
         }
-        destroy();
+        fireCommandExecuted(metricName, System.nanoTime() - start, allocatedSince(allocatedBefore), null);
+        return true;
+    }
+
+    private static long allocatedSince(final long allocatedBefore) {
+        return allocatedBefore < 0 ? -1 : CommandMetrics.currentThreadAllocatedBytes() - allocatedBefore;
+    }
+
+    private void fireCommandExecuted(final String metricName, final long durationNanos, final long allocatedBytes, final Throwable error) {
+        for (final CommandListener listener : listeners) {
+            listener.commandExecuted(metricName, durationNanos, allocatedBytes, error);
+        }
+    }
+
+    /**
+     * @param listener
+     *            listener notified after each command executed by this shell
+     */
+    public void addCommandListener(final CommandListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeCommandListener(final CommandListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return
+     *         the metrics of the commands executed by this shell
+     */
+    public CommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    HashMap<String, ShellCommand<T>> getCommands() {
+        return commands;
+    }
+
+    /**
+     * @param names
+     *            names of commands of the initialized shell
+     * @return
+     *         the commands having these names, help only describes them
+     */
+    public HashMap<String, ShellCommand<T>> restrictCommands(final Collection<String> names) {
+        final HashMap<String, ShellCommand<T>> restricted = new HashMap<String, ShellCommand<T>>();
+        for (final String name : names) {
+            final ShellCommand<T> command = commands.get(name);
+            if (command == null) {
+                throw new IllegalArgumentException("No command " + name);
+            }
+            restricted.put(name, command);
+        }
+        if (helpCommand != null && restricted.containsKey(helpCommand.getName())) {
+            restricted.put(helpCommand.getName(), new HelpCommand<T>(restricted));
+        }
+        return restricted;
+    }
+
+    /**
+     * Override to change the commands of the sessions of {@link #runServer(InetSocketAddress)}, by default all
+     * commands except groovy and parallel that execute code or read files of the server
+     * 
+     * @return
+     *         names of the commands the clients of the server can execute
+     */
+    public Collection<String> getRemoteCommands() {
+        final List<String> names = new ArrayList<String>();
+        for (final Map.Entry<String, ShellCommand<T>> entry : commands.entrySet()) {
+            if (!GROOVY.equals(entry.getKey()) && !(entry.getValue() instanceof ParallelCommand)) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param output
+     *            output used by the interactive shell, null to use {@link ShellOutput#system()}
+     */
+    public void setOutput(final ShellOutput output) {
+        this.output = output;
+    }
+
+    public ShellOutput getOutput() {
+        return output != null ? output : ShellOutput.system();
+    }
+
+    /**
+     * @param resultCache
+     *            cache of the results of read-only API calls, used instead of {@link #createResultCache()}, must be
+     *            set before {@link #init()}
+     */
+    public void setResultCache(final ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * @param metricsCsvFile
+     *            file in which metrics are written when the shell is destroyed, null to not write them
+     */
+    public void setMetricsCsvFile(final File metricsCsvFile) {
+        this.metricsCsvFile = metricsCsvFile;
+    }
+
+    private void registerMetricsMBean() {
+        if (metricsName != null) {
+            return;
+        }
+        try {
+            metricsName = new ObjectName(METRICS_MBEAN_DOMAIN + ",id=" + System.identityHashCode(this));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+        } catch (final JMException e) {
+            metricsName = null;
+            e.printStackTrace();
+        }
+    }
+
+    private void unregisterMetricsMBean() {
+        if (metricsName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+        } catch (final JMException e) {
+            e.printStackTrace();
+        }
+        metricsName = null;
     }
 
     /**
@@ -119,19 +944,15 @@ public abstract class BaseShell<T extends ShellContext> {
     protected abstract T getContext();
 
     /**
-     * used to parse arguments of the line
+     * used to parse arguments of the line, see {@link Tokenizer} for the syntax
      * 
      * @param line
      * @return
      */
     protected List<String> parse(final String line) {
-        final List<String> asList = Arrays.asList(line.trim()
-                .replaceAll("\\\\ ", "%SPACE%").split("(\\s)+"));
-        for (int i = 0; i < asList.size(); i++) {
-            final String string = asList.get(i);
-            asList.set(i, string.replaceAll("%SPACE%", " "));
-        }
-        return new ArrayList<String>(asList);
+        final Tokenizer tokenizer = tokenizers.get();
+        tokenizer.tokenize(line);
+        return tokenizer.getTokens();
     }
 
 
@@ -140,16 +961,17 @@ public abstract class BaseShell<T extends ShellContext> {
     }
 
     protected void printWelcomeMessage() {
-        System.out.println("Welcome to Bonita Shell.\n For assistance press TAB or type \"help\" then hit ENTER.");
+        final ShellOutput out = ShellOutput.current();
+        out.println("Welcome to Bonita Shell.\n For assistance press TAB or type \"help\" then hit ENTER.");
         PrintColor.printRedBold("______             _ _        _____ _          _ _ ");
         PrintColor.printRedBold("| ___ \\           (_) |      /  ___| |        | | |");
         PrintColor.printRedBold("| |_/ / ___  _ __  _| |_ __ _\\ `--.| |__   ___| | |");
         PrintColor.printRedBold("| ___ \\/ _ \\| '_ \\| | __/ _` |`--. \\ '_ \\ / _ \\ | |");
         PrintColor.printRedBold("| |_/ / (_) | | | | | || (_| /\\__/ / | | |  __/ | |");
         PrintColor.printRedBold("\\____/ \\___/|_| |_|_|\\__\\__,_\\____/|_| |_|\\___|_|_|");
-        System.out.println("");
-        System.out.println("");
-        System.out.println("");
-        System.out.println("");
+        out.println();
+        out.println();
+        out.println();
+        out.println();
     }
 }
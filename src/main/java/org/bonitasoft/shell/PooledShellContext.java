@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+/**
+ * A context that takes its session from a {@link ShellContextPool}
+ * login only keeps the credentials: the session is acquired the first time an API is requested
+ * logout gives the session back to the pool instead of closing it
+ * 
+ * @author Baptiste Mesta
+ */
+public class PooledShellContext<T extends ShellContext> implements ShellContext {
+
+    private final ShellContextPool<T> pool;
+
+    private String username;
+
+    private String password;
+
+    private T delegate;
+
+    public PooledShellContext(final ShellContextPool<T> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public synchronized boolean isLogged() {
+        return username != null;
+    }
+
+    @Override
+    public synchronized void login(final String username, final String password) {
+        release();
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public synchronized void logout() {
+        release();
+        username = null;
+        password = null;
+    }
+
+    @Override
+    public synchronized Object getApi(final String apiName) throws Exception {
+        return getDelegate().getApi(apiName);
+    }
+
+    /**
+     * @return
+     *         the pooled context, acquired if not already done
+     * @throws Exception
+     *             if the lazy login failed
+     */
+    public synchronized T getDelegate() throws Exception {
+        if (username == null) {
+            throw new IllegalStateException("Not logged in");
+        }
+        if (delegate == null) {
+            delegate = pool.acquire(username, password);
+        }
+        return delegate;
+    }
+
+    /**
+     * give the session back to the pool but keep the credentials, a session is acquired again on next API call
+     */
+    public synchronized void release() {
+        if (delegate != null) {
+            pool.release(delegate);
+            delegate = null;
+        }
+    }
+
+}
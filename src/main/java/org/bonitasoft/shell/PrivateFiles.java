@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Create files and directories that only their owner can read and write, e.g. the history or compiled scripts
+ * 
+ * @author Baptiste Mesta
+ */
+public final class PrivateFiles {
+
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private PrivateFiles() {
+    }
+
+    /**
+     * create the directory and its parents if needed, and make it accessible by its owner only
+     * 
+     * @param directory
+     * @throws IOException
+     *             if the directory can't be created or its permissions can't be changed, e.g. it belongs to another user
+     */
+    public static void createDirectory(final File directory) throws IOException {
+        final Path path = directory.toPath();
+        if (!Files.isDirectory(path)) {
+            if (isPosix(path)) {
+                Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+            } else {
+                Files.createDirectories(path);
+            }
+        }
+        restrict(path, OWNER_DIRECTORY);
+    }
+
+    /**
+     * create the file if needed, and make it readable and writable by its owner only
+     * 
+     * @param file
+     * @throws IOException
+     *             if the file can't be created or its permissions can't be changed, e.g. it belongs to another user
+     */
+    public static void createFile(final File file) throws IOException {
+        final Path path = file.toPath();
+        if (!Files.exists(path)) {
+            try {
+                final FileAttribute<?>[] attributes = isPosix(path) ? new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(OWNER_FILE) }
+                        : new FileAttribute<?>[0];
+                Files.createFile(path, attributes);
+            } catch (final FileAlreadyExistsException e) {
+                // created concurrently: permissions are checked below
+            }
+        }
+        restrict(path, OWNER_FILE);
+    }
+
+    private static boolean isPosix(final Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static void restrict(final Path path, final Set<PosixFilePermission> permissions) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view != null) {
+            // only the owner can change permissions
+            if (!view.readAttributes().permissions().equals(permissions)) {
+                view.setPermissions(permissions);
+            }
+            return;
+        }
+        final File file = path.toFile();
+        final boolean directory = file.isDirectory();
+        if (!(file.setReadable(false, false) && file.setReadable(true, true) && file.setWritable(false, false) && file.setWritable(true, true)
+                && file.setExecutable(false, false) && (!directory || file.setExecutable(true, true)))) {
+            throw new IOException("Unable to restrict the permissions of " + file);
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+/**
+ * Create new independent contexts, e.g. one per thread when commands are executed in parallel
+ * 
+ * @author Baptiste Mesta
+ */
+public interface ShellContextFactory<T extends ShellContext> {
+
+    /**
+     * @return
+     *         a new context, not logged in
+     * @throws Exception
+     */
+    T newContext() throws Exception;
+
+}
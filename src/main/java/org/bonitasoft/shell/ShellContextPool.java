@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of logged in contexts
+ * Contexts released to the pool stay logged in and are given back to the next caller using the same credentials
+ * Idle contexts are logged out after a timeout and contexts that are no more logged in are discarded on acquire
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellContextPool<T extends ShellContext> {
+
+    private final ShellContextFactory<T> factory;
+
+    private final int maxIdle;
+
+    private final long idleTimeoutMillis;
+
+    private final Map<String, Deque<IdleContext<T>>> idleContexts = new HashMap<String, Deque<IdleContext<T>>>();
+
+    private final Map<T, String> leasedContexts = new IdentityHashMap<T, String>();
+
+    private int idleCount;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param factory
+     *            factory used to create contexts when none is available
+     * @param maxIdle
+     *            maximum number of logged in contexts kept in the pool
+     * @param idleTimeoutMillis
+     *            time after which an unused context is logged out
+     */
+    public ShellContextPool(final ShellContextFactory<T> factory, final int maxIdle, final long idleTimeoutMillis) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * get a context logged in with the given credentials, a new one is created and logged in if none is available
+     * 
+     * @param username
+     * @param password
+     * @return
+     *         a logged in context that must be given back using {@link #release(ShellContext)}
+     * @throws Exception
+     *             if the login failed
+     */
+    public T acquire(final String username, final String password) throws Exception {
+        final String key = username + '\u0000' + password;
+        evictIdle();
+        T context;
+        while ((context = pollIdle(key)) != null) {
+            // keep alive validation: the session may have expired on the server
+            if (context.isLogged()) {
+                hits.incrementAndGet();
+                lease(context, key);
+                return context;
+            }
+            evictions.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        context = factory.newContext();
+        context.login(username, password);
+        lease(context, key);
+        return context;
+    }
+
+    /**
+     * give back a context obtained using {@link #acquire(String, String)}
+     * 
+     * @param context
+     */
+    public void release(final T context) {
+        final String key;
+        IdleContext<T> toLogout = null;
+        synchronized (this) {
+            key = leasedContexts.remove(context);
+            if (key == null) {
+                throw new IllegalArgumentException("context was not acquired from this pool");
+            }
+            if (idleCount >= maxIdle) {
+                toLogout = new IdleContext<T>(context);
+            } else {
+                Deque<IdleContext<T>> deque = idleContexts.get(key);
+                if (deque == null) {
+                    deque = new ArrayDeque<IdleContext<T>>();
+                    idleContexts.put(key, deque);
+                }
+                deque.push(new IdleContext<T>(context));
+                idleCount++;
+            }
+        }
+        if (toLogout != null) {
+            evictions.incrementAndGet();
+            logout(toLogout.context);
+        }
+    }
+
+    /**
+     * logout contexts that were not used since the idle timeout
+     */
+    public void evictIdle() {
+        final long limit = System.currentTimeMillis() - idleTimeoutMillis;
+        final Deque<T> expired = new ArrayDeque<T>();
+        synchronized (this) {
+            for (final Deque<IdleContext<T>> deque : idleContexts.values()) {
+                // most recently released contexts are first
+                while (!deque.isEmpty() && deque.peekLast().releaseTime < limit) {
+                    expired.add(deque.removeLast().context);
+                    idleCount--;
+                }
+            }
+        }
+        for (final T context : expired) {
+            evictions.incrementAndGet();
+            logout(context);
+        }
+    }
+
+    /**
+     * logout all idle contexts
+     */
+    public void close() {
+        final Deque<T> idle = new ArrayDeque<T>();
+        synchronized (this) {
+            for (final Iterator<Deque<IdleContext<T>>> iterator = idleContexts.values().iterator(); iterator.hasNext();) {
+                for (final IdleContext<T> idleContext : iterator.next()) {
+                    idle.add(idleContext.context);
+                }
+                iterator.remove();
+            }
+            idleCount = 0;
+        }
+        for (final T context : idle) {
+            logout(context);
+        }
+    }
+
+    /**
+     * @return
+     *         number of acquire that reused a logged in context
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return
+     *         number of acquire that had to create and login a new context
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return
+     *         number of contexts logged out or discarded by the pool
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private synchronized T pollIdle(final String key) {
+        final Deque<IdleContext<T>> deque = idleContexts.get(key);
+        if (deque == null || deque.isEmpty()) {
+            return null;
+        }
+        idleCount--;
+        return deque.pop().context;
+    }
+
+    private synchronized void lease(final T context, final String key) {
+        leasedContexts.put(context, key);
+    }
+
+    private void logout(final T context) {
+        try {
+            if (context.isLogged()) {
+                context.logout();
+            }
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class IdleContext<T> {
+
+        private final T context;
+
+        private final long releaseTime;
+
+        IdleContext(final T context) {
+            this.context = context;
+            releaseTime = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Lines given by the user of the current thread, e.g. read by a command from the standard input of its session
+ * Like {@link org.bonitasoft.shell.color.ShellOutput}, the input is bound to the thread executing the lines of a
+ * session; threads with no bound input, e.g. the batch mode, read System.in. Commands must not close it.
+ * 
+ * @author Baptiste Mesta
+ */
+public abstract class ShellInput {
+
+    private static final ThreadLocal<ShellInput> CURRENT = new ThreadLocal<ShellInput>();
+
+    /**
+     * input of threads that can't read lines from the user, e.g. background jobs
+     */
+    public static final ShellInput NONE = new ShellInput() {
+
+        @Override
+        public String readLine() throws IOException {
+            throw new IOException("No standard input here, give a file instead");
+        }
+    };
+
+    /**
+     * input of the sessions of a {@link org.bonitasoft.shell.server.ShellServer} and of their jobs: their users may be
+     * other users of the machine, they can't use the files of the shell nor change what all sessions share
+     */
+    public static final ShellInput REMOTE = new ShellInput() {
+
+        @Override
+        public String readLine() throws IOException {
+            throw new IOException("No standard input in a remote session");
+        }
+
+        @Override
+        public boolean isLocal() {
+            return false;
+        }
+
+        @Override
+        public ShellInput background() {
+            return this;
+        }
+    };
+
+    private static volatile ShellInput system;
+
+    /**
+     * @return
+     *         the next line, null at the end of the input
+     * @throws IOException
+     */
+    public abstract String readLine() throws IOException;
+
+    /**
+     * @return
+     *         true if the user runs the shell: commands can read or write the files it gives and change the state
+     *         shared by all sessions, e.g. clear the statistics
+     */
+    public boolean isLocal() {
+        return true;
+    }
+
+    /**
+     * @param path
+     *            file given by the user to a command
+     * @throws IOException
+     *             if the user can't use the files of the shell
+     */
+    public final void checkFileAccess(final String path) throws IOException {
+        if (!isLocal()) {
+            throw new IOException("Files of the shell can't be used from a remote session: " + path);
+        }
+    }
+
+    /**
+     * @return
+     *         input of the background work started by the user, e.g. jobs: no line can be read and files can be used
+     *         only if they can be with this input
+     */
+    public ShellInput background() {
+        return NONE;
+    }
+
+    /**
+     * @param reader
+     *            lines of the input, not closed by the input
+     * @return
+     *         an input reading the lines of the reader
+     */
+    public static ShellInput of(final BufferedReader reader) {
+        return new ShellInput() {
+
+            @Override
+            public String readLine() throws IOException {
+                return reader.readLine();
+            }
+        };
+    }
+
+    /**
+     * @return
+     *         input reading System.in, it is never closed
+     */
+    public static ShellInput system() {
+        if (system == null) {
+            synchronized (ShellInput.class) {
+                if (system == null) {
+                    system = of(new BufferedReader(new InputStreamReader(System.in)));
+                }
+            }
+        }
+        return system;
+    }
+
+    /**
+     * @return
+     *         the input bound to the current thread, the {@link #system()} input if none
+     */
+    public static ShellInput current() {
+        final ShellInput input = CURRENT.get();
+        return input != null ? input : system();
+    }
+
+    /**
+     * bind an input to the current thread
+     * 
+     * @param input
+     *            the input, null to use the system input
+     * @return
+     *         the input previously bound, to give to {@link #restore(ShellInput)}
+     */
+    public static ShellInput bind(final ShellInput input) {
+        final ShellInput previous = CURRENT.get();
+        CURRENT.set(input);
+        return previous;
+    }
+
+    /**
+     * bind back the previous input
+     * 
+     * @param previous
+     *            value returned by {@link #bind(ShellInput)}
+     */
+    public static void restore(final ShellInput previous) {
+        CURRENT.set(previous);
+    }
+
+}
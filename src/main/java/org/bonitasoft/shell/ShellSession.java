@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+
+import jline.Terminal;
+import jline.console.ConsoleReader;
+
+import org.bonitasoft.shell.color.ShellOutput;
+import org.bonitasoft.shell.completer.CommandArgumentsCompleter;
+import org.bonitasoft.shell.completer.ReflectCandidateListCompletionHandler;
+import org.bonitasoft.shell.history.PersistentHistory;
+
+/**
+ * A user of a shell: reads lines from its own input, executes them with its own context and writes to its own output
+ * Many sessions can run at the same time on a single {@link BaseShell}, sharing its commands. Nothing is read from
+ * or written to System.in and System.out: the output is bound to the thread running the session.
+ * Embedded sessions read plain lines and print the prompt after each of them, the console of the shell uses
+ * jline for edition, completion and its persistent history
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellSession<T extends ShellContext> implements Runnable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 512;
+
+    private final BaseShell<T> shell;
+
+    private final T context;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private final ShellOutput output;
+
+    private final boolean console;
+
+    /**
+     * @param shell
+     *            the shell executing the lines, already initialized
+     * @param context
+     *            context of this session
+     * @param in
+     *            lines to execute, UTF-8 encoded
+     * @param out
+     *            where the output of the commands is written, UTF-8 encoded and without colors
+     */
+    public ShellSession(final BaseShell<T> shell, final T context, final InputStream in, final OutputStream out) {
+        this(shell, context, in, out, new ShellOutput(new OutputStreamWriter(out, UTF_8), false, BUFFER_SIZE), false);
+    }
+
+    ShellSession(final BaseShell<T> shell, final T context, final InputStream in, final OutputStream out, final ShellOutput output,
+            final boolean console) {
+        this.shell = shell;
+        this.context = context;
+        this.in = in;
+        this.out = out;
+        this.output = output;
+        this.console = console;
+    }
+
+    public T getContext() {
+        return context;
+    }
+
+    /**
+     * read and execute lines until exit or the end of the input
+     */
+    @Override
+    public void run() {
+        final ShellOutput previous = ShellOutput.bind(output);
+        try {
+            if (console) {
+                runConsole();
+            } else {
+                runLines();
+            }
+        } catch (final IOException e) {
+            // the input or the output was closed
+        } finally {
+            // no one can see the jobs of the session anymore
+            shell.releaseJobs(context);
+            ShellOutput.restore(previous);
+        }
+    }
+
+    private void runLines() throws IOException {
+        final LineReader reader = new LineReader(in);
+        // commands reading the standard input, e.g. --each -, read the next lines of the session
+        final ShellInput previous = ShellInput.bind(reader);
+        try {
+            output.print(shell.getPrompt());
+            output.flush();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!execute(line.trim())) {
+                    return;
+                }
+                output.print(shell.getPrompt());
+                output.flush();
+            }
+        } finally {
+            ShellInput.restore(previous);
+        }
+    }
+
+    private void runConsole() throws IOException {
+        shell.printWelcomeMessage();
+        output.flush();
+        final PersistentHistory history = shell.openHistory();
+        ShellInput previous = null;
+        try {
+            final ConsoleReader reader = history != null ? new IndexedSearchConsoleReader(in, out, history) : new ConsoleReader(in, out);
+            reader.setBellEnabled(false);
+            reader.setCompletionHandler(new ReflectCandidateListCompletionHandler());
+            final CommandArgumentsCompleter<T> completer = new CommandArgumentsCompleter<T>(shell.getCommands(), context);
+            if (history != null) {
+                reader.setHistory(history);
+                completer.setHistory(history);
+            }
+            reader.addCompleter(completer);
+            previous = ShellInput.bind(new ConsoleInput(reader));
+            String line;
+            while ((line = reader.readLine(shell.finishedJobs(context) + "\n" + shell.getPrompt())) != null) {
+                if (!execute(line)) {
+                    return;
+                }
+            }
+        } finally {
+            ShellInput.restore(previous);
+            if (history != null) {
+                history.close();
+            }
+        }
+    }
+
+    /**
+     * @return
+     *         false if the session must end
+     */
+    private boolean execute(final String line) {
+        if ("exit".equals(line)) {
+            output.println("Exiting application");
+            output.flush();
+            return false;
+        }
+        if (line.isEmpty()) {
+            return true;
+        }
+        try {
+            shell.executeLine(line, context);
+        } catch (final Exception e) {
+            output.printStackTrace(e);
+            output.flush();
+        }
+        return true;
+    }
+
+    /**
+     * Read UTF-8 lines using a small buffer, a reader would allocate 8 kilobytes per session
+     */
+    private static final class LineReader extends ShellInput {
+
+        private final InputStream in;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int position;
+
+        private int limit;
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(0);
+
+        LineReader(final InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return
+         *         the next line without its line terminator, null at the end of the input
+         */
+        @Override
+        public String readLine() throws IOException {
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return line.size() > 0 ? takeLine() : null;
+                    }
+                }
+                while (position < limit) {
+                    final byte b = buffer[position++];
+                    if (b == '\n') {
+                        return takeLine();
+                    }
+                    line.write(b);
+                }
+            }
+        }
+
+        private String takeLine() {
+            final byte[] bytes = line.toByteArray();
+            line.reset();
+            final int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+            return new String(bytes, 0, length, UTF_8);
+        }
+    }
+
+    /**
+     * Lines read by a command from the console until Ctrl-D, they are not added to the history
+     */
+    private static final class ConsoleInput extends ShellInput {
+
+        private final ConsoleReader reader;
+
+        ConsoleInput(final ConsoleReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            final boolean historyEnabled = reader.isHistoryEnabled();
+            reader.setHistoryEnabled(false);
+            try {
+                return reader.readLine("");
+            } finally {
+                reader.setHistoryEnabled(historyEnabled);
+            }
+        }
+    }
+
+    /**
+     * Console using the index of the history for reverse search instead of reading all lines
+     */
+    static final class IndexedSearchConsoleReader extends ConsoleReader {
+
+        // set by ConsoleReader while a search is in progress, the line found last is then skipped by forward searches
+        private static final Field SEARCH_INDEX = searchIndexField();
+
+        private final PersistentHistory history;
+
+        IndexedSearchConsoleReader(final InputStream in, final OutputStream out, final PersistentHistory history) throws IOException {
+            this(in, out, null, history);
+        }
+
+        IndexedSearchConsoleReader(final InputStream in, final OutputStream out, final Terminal terminal, final PersistentHistory history)
+                throws IOException {
+            super(in, out, terminal);
+            this.history = history;
+        }
+
+        private static Field searchIndexField() {
+            try {
+                final Field field = ConsoleReader.class.getDeclaredField("searchIndex");
+                field.setAccessible(true);
+                return field;
+            } catch (final Exception e) {
+                // another version of jline: searched without the index
+                return null;
+            }
+        }
+
+        @Override
+        public int searchBackwards(final String searchTerm, final int startIndex, final boolean startsWith) {
+            return history.searchBackwards(searchTerm, startIndex, startsWith);
+        }
+
+        @Override
+        public int searchForwards(final String searchTerm, final int startIndex, final boolean startsWith) {
+            if (SEARCH_INDEX == null) {
+                return super.searchForwards(searchTerm, startIndex, startsWith);
+            }
+            final int searchIndex;
+            try {
+                searchIndex = SEARCH_INDEX.getInt(this);
+            } catch (final IllegalAccessException e) {
+                return super.searchForwards(searchTerm, startIndex, startsWith);
+            }
+            // like ConsoleReader, a search in progress does not find the same line again
+            return history.searchForwards(searchTerm, searchIndex != -1 ? startIndex + 1 : startIndex, startsWith);
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads running shell sessions: virtual threads when the JVM has them (JDK 21+), daemon platform threads otherwise
+ * A session mostly waits for its next line, on a virtual thread this costs a few kilobytes of heap instead of a
+ * thread stack. Virtual threads are created by reflection so the shell still runs on older JVMs
+ * 
+ * @author Baptiste Mesta
+ */
+public final class ShellThreads {
+
+    private static final Method OF_VIRTUAL;
+
+    private static final Method NAME;
+
+    private static final Method NAME_WITH_COUNTER;
+
+    private static final Method FACTORY;
+
+    private static final Method START;
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method nameWithCounter = null;
+        Method factory = null;
+        Method start = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            nameWithCounter = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            start = builder.getMethod("start", Runnable.class);
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            // preview API on JDK 19 and 20: fails unless preview features are enabled
+            ofVirtual.invoke(null);
+        } catch (final Exception e) {
+            ofVirtual = null;
+        } catch (final LinkageError e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        NAME_WITH_COUNTER = nameWithCounter;
+        FACTORY = factory;
+        START = start;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private ShellThreads() {
+    }
+
+    /**
+     * @return
+     *         true if sessions run on virtual threads
+     */
+    public static boolean isVirtual() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * start a thread for a session
+     * 
+     * @param runnable
+     * @param name
+     *            name of the thread
+     * @return
+     *         the started thread, virtual if possible
+     */
+    public static Thread start(final Runnable runnable, final String name) {
+        if (OF_VIRTUAL != null) {
+            try {
+                return (Thread) START.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name), runnable);
+            } catch (final Exception e) {
+                throw new IllegalStateException("Unable to start a virtual thread", e);
+            }
+        }
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @param prefix
+     *            prefix of the names of the threads, followed by a counter
+     * @return
+     *         an executor creating a virtual thread per task if possible, a cached pool of daemon threads otherwise
+     */
+    public static ExecutorService newExecutor(final String prefix) {
+        if (OF_VIRTUAL != null) {
+            try {
+                final ThreadFactory factory = (ThreadFactory) FACTORY.invoke(NAME_WITH_COUNTER.invoke(OF_VIRTUAL.invoke(null), prefix, 1L));
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+            } catch (final Exception e) {
+                throw new IllegalStateException("Unable to create virtual threads", e);
+            }
+        }
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split a command line in tokens in a single pass
+ * Tokens are separated by whitespaces.
+ * A backslash escapes the following whitespace, quote or backslash: e.g. my\ value is one token 'my value'
+ * Whitespaces between double quotes do not separate tokens, the quotes are kept in the token so that
+ * commands can tell a quoted argument from a plain one.
+ * Tokens are kept as offsets in the line, strings are only created when asked for.
+ * An instance reuses its buffers between lines and must not be shared between threads
+ *
+ * @author Baptiste Mesta
+ */
+public class Tokenizer {
+
+    private CharSequence line;
+
+    private int[] starts = new int[16];
+
+    private int[] ends = new int[16];
+
+    private boolean[] escaped = new boolean[16];
+
+    private int count;
+
+    private boolean trailingWhitespace;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * @param line
+     *            the line to split
+     * @return
+     *         the number of tokens found
+     */
+    public int tokenize(final CharSequence line) {
+        this.line = line;
+        count = 0;
+        trailingWhitespace = false;
+        final int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                trailingWhitespace = count > 0;
+                break;
+            }
+            final int start = i;
+            boolean hasEscape = false;
+            boolean quoted = false;
+            while (i < length) {
+                final char c = line.charAt(i);
+                if (c == '\\' && i + 1 < length) {
+                    final char next = line.charAt(i + 1);
+                    if (quoted) {
+                        // kept as is, only prevents the quote from closing
+                        i += 2;
+                        continue;
+                    }
+                    if (isEscapable(next)) {
+                        hasEscape = true;
+                        i += 2;
+                        continue;
+                    }
+                } else if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && Character.isWhitespace(c)) {
+                    break;
+                }
+                i++;
+            }
+            add(start, i, hasEscape);
+        }
+        return count;
+    }
+
+    private static boolean isEscapable(final char c) {
+        return c == '\\' || c == '"' || Character.isWhitespace(c);
+    }
+
+    private void add(final int start, final int end, final boolean hasEscape) {
+        if (count == starts.length) {
+            final int newLength = count * 2;
+            final int[] newStarts = new int[newLength];
+            final int[] newEnds = new int[newLength];
+            final boolean[] newEscaped = new boolean[newLength];
+            System.arraycopy(starts, 0, newStarts, 0, count);
+            System.arraycopy(ends, 0, newEnds, 0, count);
+            System.arraycopy(escaped, 0, newEscaped, 0, count);
+            starts = newStarts;
+            ends = newEnds;
+            escaped = newEscaped;
+        }
+        starts[count] = start;
+        ends[count] = end;
+        escaped[count] = hasEscape;
+        count++;
+    }
+
+    public int getTokenCount() {
+        return count;
+    }
+
+    /**
+     * @param index
+     * @return
+     *         offset in the line of the first character of the token
+     */
+    public int getStart(final int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * @param index
+     * @return
+     *         offset in the line after the last character of the token
+     */
+    public int getEnd(final int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * @return
+     *         true if the line ends with whitespaces after its last token
+     */
+    public boolean hasTrailingWhitespace() {
+        return trailingWhitespace;
+    }
+
+    /**
+     * @param index
+     * @return
+     *         the token with its escapes removed
+     */
+    public String getToken(final int index) {
+        checkIndex(index);
+        final int start = starts[index];
+        final int end = ends[index];
+        if (!escaped[index]) {
+            return line.subSequence(start, end).toString();
+        }
+        buffer.setLength(0);
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\\' && i + 1 < end && (quoted || isEscapable(line.charAt(i + 1)))) {
+                if (quoted) {
+                    buffer.append(c);
+                }
+                i++;
+                buffer.append(line.charAt(i));
+                continue;
+            }
+            buffer.append(c);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * add all tokens of the last line to the given list
+     *
+     * @param tokens
+     * @return
+     *         the given list
+     */
+    public List<String> addTokens(final List<String> tokens) {
+        for (int i = 0; i < count; i++) {
+            tokens.add(getToken(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return
+     *         a new modifiable list containing the tokens of the last line
+     */
+    public List<String> getTokens() {
+        return addTokens(new ArrayList<String>(count));
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("token " + index + " of " + count);
+        }
+    }
+
+}
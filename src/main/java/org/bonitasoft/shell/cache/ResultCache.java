@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.cache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Results of read-only API calls, by context, API, method and arguments
+ * A method is read-only if it is annotated with {@link ReadOnly} or if its name matches a pattern, getters, counts and
+ * searches by default. Calling any other method of an API removes the results of this API.
+ * Results expire after a time to live, the least recently used are evicted when the cache is full. A result is not kept
+ * if its API or its context was invalidated while it was computed, it could be older than the invalidation
+ * 
+ * @author Baptiste Mesta
+ */
+public class ResultCache {
+
+    /**
+     * names of methods considered as read-only by default
+     */
+    public static final String DEFAULT_READ_ONLY_PATTERN = "(get|is|has|count|search|find|list)([A-Z].*)?";
+
+    private static final Object NULL = new Object();
+
+    private final int maxSize;
+
+    private final long timeToLiveMillis;
+
+    private final Pattern readOnlyPattern;
+
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final ConcurrentMap<Method, Boolean> readOnlyMethods = new ConcurrentHashMap<Method, Boolean>();
+
+    // number of invalidations, compared before and after a call
+    private final Map<String, Long> apiGenerations = new HashMap<String, Long>();
+
+    private final Map<Object, Long> contextGenerations = new WeakHashMap<Object, Long>();
+
+    private long clearGeneration;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long expirations;
+
+    private long invalidations;
+
+    /**
+     * @param maxSize
+     *            maximum number of results kept
+     * @param timeToLiveMillis
+     *            time during which a result is used
+     */
+    public ResultCache(final int maxSize, final long timeToLiveMillis) {
+        this(maxSize, timeToLiveMillis, Pattern.compile(DEFAULT_READ_ONLY_PATTERN));
+    }
+
+    /**
+     * @param maxSize
+     *            maximum number of results kept
+     * @param timeToLiveMillis
+     *            time during which a result is used
+     * @param readOnlyPattern
+     *            names of the methods whose results are kept, in addition to methods annotated with {@link ReadOnly}
+     */
+    public ResultCache(final int maxSize, final long timeToLiveMillis, final Pattern readOnlyPattern) {
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.readOnlyPattern = readOnlyPattern;
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, ResultCache.Entry> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param methodName
+     * @return
+     *         true if the name of the method matches the read-only pattern
+     */
+    public boolean isReadOnly(final String methodName) {
+        return readOnlyPattern.matcher(methodName).matches();
+    }
+
+    /**
+     * @param method
+     * @return
+     *         true if the method is annotated with {@link ReadOnly} or if its name matches the read-only pattern
+     */
+    public boolean isReadOnly(final Method method) {
+        Boolean readOnly = readOnlyMethods.get(method);
+        if (readOnly == null) {
+            readOnly = method.isAnnotationPresent(ReadOnly.class) || isReadOnly(method.getName());
+            readOnlyMethods.put(method, readOnly);
+        }
+        return readOnly;
+    }
+
+    /**
+     * call a method of an API, or give the result of the previous identical call if the method is read-only
+     * 
+     * @param context
+     *            context used for the call, results are not shared between contexts
+     * @param apiName
+     * @param methodName
+     * @param arguments
+     * @param readOnly
+     *            true if the result can be kept, otherwise results of the API are removed
+     * @param call
+     *            the actual call
+     * @return
+     *         the result of the call
+     * @throws Exception
+     *             exception thrown by the call
+     */
+    public Object call(final Object context, final String apiName, final String methodName, final List<?> arguments, final boolean readOnly,
+            final Callable<Object> call) throws Exception {
+        if (!readOnly) {
+            try {
+                return call.call();
+            } finally {
+                // even if it failed, the call may have changed something
+                invalidate(apiName);
+            }
+        }
+        final Key key = new Key(context, apiName, methodName, new ArrayList<Object>(arguments));
+        final long generation = generation(context, apiName);
+        final Object cached = get(key);
+        if (cached != null) {
+            return cached == NULL ? null : cached;
+        }
+        final Object result = call.call();
+        put(key, result == null ? NULL : result, generation);
+        return result;
+    }
+
+    /**
+     * @return
+     *         a number that increases each time the results of the API or of the context are removed
+     */
+    private synchronized long generation(final Object context, final String apiName) {
+        return clearGeneration + get(apiGenerations, apiName) + get(contextGenerations, context);
+    }
+
+    private static <K> long get(final Map<K, Long> generations, final K key) {
+        final Long generation = generations.get(key);
+        return generation == null ? 0 : generation;
+    }
+
+    private static <K> void increment(final Map<K, Long> generations, final K key) {
+        generations.put(key, get(generations, key) + 1);
+    }
+
+    private synchronized Object get(final Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    private synchronized void put(final Key key, final Object value, final long generation) {
+        if (generation(key.context, key.apiName) != generation) {
+            // a write or a login happened during the call: the result may be stale
+            return;
+        }
+        entries.put(key, new Entry(value, System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    /**
+     * remove the results of all methods of an API
+     * 
+     * @param apiName
+     */
+    public synchronized void invalidate(final String apiName) {
+        increment(apiGenerations, apiName);
+        for (final Iterator<Key> iterator = entries.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().apiName.equals(apiName)) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * remove the results of the calls made with a context, must be called when the context logs in or out, e.g. by
+     * {@link org.bonitasoft.shell.command.LoginCommand}: results of a user must not be given to the next one
+     * 
+     * @param context
+     */
+    public synchronized void invalidateContext(final Object context) {
+        increment(contextGenerations, context);
+        for (final Iterator<Key> iterator = entries.keySet().iterator(); iterator.hasNext();) {
+            if (iterator.next().context == context) {
+                iterator.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * remove all results
+     */
+    public synchronized void clear() {
+        clearGeneration++;
+        entries.clear();
+    }
+
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        expirations = 0;
+        invalidations = 0;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    private static final class Key {
+
+        private final Object context;
+
+        private final String apiName;
+
+        private final String methodName;
+
+        private final List<Object> arguments;
+
+        private final int hashCode;
+
+        Key(final Object context, final String apiName, final String methodName, final List<Object> arguments) {
+            this.context = context;
+            this.apiName = apiName;
+            this.methodName = methodName;
+            this.arguments = arguments;
+            hashCode = ((System.identityHashCode(context) * 31 + apiName.hashCode()) * 31 + methodName.hashCode()) * 31 + arguments.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return context == other.context && apiName.equals(other.apiName) && methodName.equals(other.methodName)
+                    && arguments.equals(other.arguments);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long expiresAt;
+
+        Entry(final Object value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
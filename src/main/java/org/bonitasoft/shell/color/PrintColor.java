@@ -6,41 +6,44 @@
  */
 package org.bonitasoft.shell.color;
 
-import org.fusesource.jansi.Ansi;
-import org.fusesource.jansi.Ansi.Color;
+import org.bonitasoft.shell.color.ShellOutput.Style;
 import org.fusesource.jansi.AnsiConsole;
 
 /**
  * Allow to print colorized String.
+ * Text is written to the {@link ShellOutput} of the current thread
  * 
  * @author Joachim Segala
  */
 public class PrintColor {
 
     public static final void printRed(final String pText) {
-        print(pText, Ansi.Color.RED, false);
+        ShellOutput.current().println(pText, Style.RED);
     }
 
     public static final void printRedBold(final String pText) {
-        print(pText, Ansi.Color.RED, true);
+        ShellOutput.current().println(pText, Style.RED_BOLD);
     }
 
     public static final void printGreen(final String pText) {
-        print(pText, Ansi.Color.GREEN, false);
+        ShellOutput.current().println(pText, Style.GREEN);
     }
 
     public static final void printGreenBold(final String pText) {
-        print(pText, Ansi.Color.GREEN, true);
+        ShellOutput.current().println(pText, Style.GREEN_BOLD);
     }
 
     public static final void printBlue(final String pText) {
-        print(pText, Ansi.Color.BLUE, false);
+        ShellOutput.current().println(pText, Style.BLUE);
     }
 
     public static final void printBlueBold(final String pText) {
-        print(pText, Ansi.Color.BLUE, true);
+        ShellOutput.current().println(pText, Style.BLUE_BOLD);
     }
 
+    /**
+     * install the ANSI console so that escape sequences are translated on terminals that don't support them
+     */
     public static final void init() {
         AnsiConsole.systemInstall();
     }
@@ -49,17 +52,4 @@ public class PrintColor {
         AnsiConsole.systemUninstall();
     }
 
-    private static final Ansi ansi() {
-        return new Ansi();
-    }
-
-    private static final void print(final String pText, final Color pColor,
-            final boolean pBold) {
-        if (pBold) {
-            System.out.println(ansi().bold().fg(pColor).a(pText).reset());
-        } else {
-            System.out.println(ansi().fg(pColor).a(pText).reset());
-        }
-    }
-
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.color;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Output used by the shell and its commands instead of System.out
+ * Text is written through a buffer that is flushed after each command, colors use precomputed escape sequences
+ * and are disabled when the output is not a terminal.
+ * The output used by the current thread is given by {@link #current()}, this allows the output of a command
+ * to be captured when it runs in background or to be sent to a remote client
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellOutput {
+
+    private static final String RESET = "\u001B[0m";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile ShellOutput system;
+
+    private static final ThreadLocal<ShellOutput> CURRENT = new ThreadLocal<ShellOutput>();
+
+    /**
+     * Colors that can be used to print text
+     */
+    public enum Style {
+        RED("\u001B[31m"), RED_BOLD("\u001B[1;31m"), GREEN("\u001B[32m"), GREEN_BOLD("\u001B[1;32m"), BLUE("\u001B[34m"), BLUE_BOLD("\u001B[1;34m");
+
+        private final String escape;
+
+        private Style(final String escape) {
+            this.escape = escape;
+        }
+    }
+
+    private final PrintWriter writer;
+
+    private volatile boolean colorEnabled;
+
+    /**
+     * @param writer
+     *            where the text is written, it is buffered by this output
+     * @param colorEnabled
+     *            true to write escape sequences for colors
+     */
+    public ShellOutput(final Writer writer, final boolean colorEnabled) {
+        this(writer, colorEnabled, BUFFER_SIZE);
+    }
+
+    /**
+     * @param writer
+     *            where the text is written, it is buffered by this output
+     * @param colorEnabled
+     *            true to write escape sequences for colors
+     * @param bufferSize
+     *            number of characters buffered, small buffers keep idle sessions cheap
+     */
+    public ShellOutput(final Writer writer, final boolean colorEnabled, final int bufferSize) {
+        this.writer = new PrintWriter(new BufferedWriter(writer, bufferSize));
+        this.colorEnabled = colorEnabled;
+    }
+
+    public ShellOutput(final OutputStream outputStream, final boolean colorEnabled) {
+        this(new OutputStreamWriter(outputStream), colorEnabled);
+    }
+
+    /**
+     * @return
+     *         output writing to the current System.out, with colors if the JVM has a console
+     */
+    public static ShellOutput system() {
+        if (system == null) {
+            synchronized (ShellOutput.class) {
+                if (system == null) {
+                    system = new ShellOutput(new OutputStream() {
+
+                        // System.out is looked up on each write: it is replaced when the ANSI console is installed
+
+                        @Override
+                        public void write(final int b) {
+                            System.out.write(b);
+                        }
+
+                        @Override
+                        public void write(final byte[] b, final int off, final int len) {
+                            System.out.write(b, off, len);
+                        }
+
+                        @Override
+                        public void flush() {
+                            System.out.flush();
+                        }
+                    }, System.console() != null);
+                }
+            }
+        }
+        return system;
+    }
+
+    /**
+     * @return
+     *         the output bound to the current thread, the {@link #system()} output if none
+     */
+    public static ShellOutput current() {
+        final ShellOutput output = CURRENT.get();
+        return output != null ? output : system();
+    }
+
+    /**
+     * bind an output to the current thread
+     * 
+     * @param output
+     *            the output, null to use the system output
+     * @return
+     *         the output previously bound, to give to {@link #restore(ShellOutput)}
+     */
+    public static ShellOutput bind(final ShellOutput output) {
+        final ShellOutput previous = CURRENT.get();
+        CURRENT.set(output);
+        return previous;
+    }
+
+    /**
+     * flush the output bound to the current thread and bind back the previous one
+     * 
+     * @param previous
+     *            value returned by {@link #bind(ShellOutput)}
+     */
+    public static void restore(final ShellOutput previous) {
+        final ShellOutput output = CURRENT.get();
+        if (output != null) {
+            output.flush();
+        }
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public boolean isColorEnabled() {
+        return colorEnabled;
+    }
+
+    public void setColorEnabled(final boolean colorEnabled) {
+        this.colorEnabled = colorEnabled;
+    }
+
+    /**
+     * @return
+     *         the buffered writer of this output, e.g. to stream large results
+     */
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    public void print(final Object text) {
+        writer.print(text);
+    }
+
+    public void println(final Object text) {
+        writer.println(text);
+    }
+
+    public void println() {
+        writer.println();
+    }
+
+    public void printf(final String format, final Object... args) {
+        writer.printf(format, args);
+    }
+
+    public void printf(final Locale locale, final String format, final Object... args) {
+        writer.printf(locale, format, args);
+    }
+
+    public void println(final String text, final Style style) {
+        if (colorEnabled) {
+            writer.print(style.escape);
+            writer.print(text);
+            writer.println(RESET);
+        } else {
+            writer.println(text);
+        }
+    }
+
+    public void printStackTrace(final Throwable throwable) {
+        throwable.printStackTrace(writer);
+    }
+
+    /**
+     * write buffered text
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.List;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.cache.ResultCache;
+
+/**
+ * A command calling the methods of an API, its methods are used for completion and as variables of groovy scripts
+ * 
+ * @author Baptiste Mesta
+ */
+public interface ApiCommand {
+
+    /**
+     * @return
+     *         name of the API, also the name of the command
+     */
+    String getName();
+
+    /**
+     * @return
+     *         sorted names of the methods of the API
+     */
+    List<String> getMethodNames();
+
+    /**
+     * @param methodName
+     * @return
+     *         one line per overload of the method, null if there is no such method
+     */
+    String getMethodHelp(String methodName);
+
+    /**
+     * call a method of the API without printing its result, e.g. from a pipeline
+     * 
+     * @param args
+     *            name of the method followed by its parameters: strings to convert or objects given as is
+     * @param context
+     * @return
+     *         the result of the method, null if it returns nothing
+     * @throws Exception
+     */
+    Object call(List<?> args, ShellContext context) throws Exception;
+
+    /**
+     * @param resultCache
+     *            cache keeping the results of the read-only methods of the API, null to call the API every time
+     */
+    void setResultCache(ResultCache resultCache);
+
+}
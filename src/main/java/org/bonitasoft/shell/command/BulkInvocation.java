@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.Tokenizer;
+import org.bonitasoft.shell.color.ShellOutput;
+
+/**
+ * Call one method of an API once per line of a file: {@code <api> <method> [parameters] --each <file|->}
+ * Each line gives the last parameters of a call, split like a command line. With - the lines are read from the input
+ * of the session, see {@link ShellInput}. Lines are read as they are executed and
+ * grouped in batches given to the workers, failed calls are retried with an exponential backoff. Results are not
+ * printed, a summary of the throughput and of the errors is printed at the end
+ * 
+ * @author Baptiste Mesta
+ */
+class BulkInvocation {
+
+    static final String EACH_OPTION = "--each";
+
+    private static final String BATCH_SIZE_OPTION = "--batch-size";
+
+    private static final String PARALLEL_OPTION = "--parallel";
+
+    private static final String RETRY_OPTION = "--retry";
+
+    private static final String BACKOFF_OPTION = "--backoff";
+
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    private static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+    /**
+     * A call of the method with the parameters of one line
+     */
+    interface Call {
+
+        Object call(List<String> parameters) throws Exception;
+    }
+
+    private final String source;
+
+    private int batchSize = 100;
+
+    private int parallelism = 1;
+
+    private int retries;
+
+    private long backoffMillis = 100;
+
+    private final AtomicLong succeeded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong retried = new AtomicLong();
+
+    private final AtomicInteger reportedFailures = new AtomicInteger();
+
+    private final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+
+    private BulkInvocation(final String source) {
+        this.source = source;
+    }
+
+    /**
+     * read the options --each, --batch-size, --parallel, --retry and --backoff, the options and their values are removed
+     * from the arguments
+     * 
+     * @param args
+     * @return
+     *         the bulk invocation, null if there is no --each option
+     */
+    static BulkInvocation fromArguments(final List<String> args) {
+        final int each = args.indexOf(EACH_OPTION);
+        if (each < 0 || each == args.size() - 1) {
+            return null;
+        }
+        final BulkInvocation bulk = new BulkInvocation(args.get(each + 1));
+        args.remove(each);
+        args.remove(each);
+        for (int i = 0; i < args.size() - 1;) {
+            final String option = args.get(i);
+            if (BATCH_SIZE_OPTION.equals(option)) {
+                bulk.batchSize = positive(option, args.get(i + 1));
+            } else if (PARALLEL_OPTION.equals(option)) {
+                bulk.parallelism = positive(option, args.get(i + 1));
+            } else if (RETRY_OPTION.equals(option)) {
+                bulk.retries = (int) nonNegative(option, args.get(i + 1));
+            } else if (BACKOFF_OPTION.equals(option)) {
+                bulk.backoffMillis = nonNegative(option, args.get(i + 1));
+            } else {
+                i++;
+                continue;
+            }
+            args.remove(i);
+            args.remove(i);
+        }
+        return bulk;
+    }
+
+    private static int positive(final String option, final String value) {
+        final int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(option + " must be positive: " + value);
+        }
+        return parsed;
+    }
+
+    private static long nonNegative(final String option, final String value) {
+        final long parsed = Long.parseLong(value);
+        if (parsed < 0 || parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(option + " must be between 0 and " + Integer.MAX_VALUE + ": " + value);
+        }
+        return parsed;
+    }
+
+    /**
+     * call the method for each line of the source and print a summary
+     * 
+     * @param fixedParameters
+     *            parameters given before the parameters of each line
+     * @param call
+     *            calls the method, can be called by several threads at the same time
+     * @param output
+     *            where the summary is printed
+     * @return
+     *         true if all calls succeeded
+     * @throws Exception
+     *             if the source can't be read
+     */
+    boolean execute(final List<String> fixedParameters, final Call call, final ShellOutput output) throws Exception {
+        if (!"-".equals(source)) {
+            ShellInput.current().checkFileAccess(source);
+        }
+        // the input of the session is not closed
+        final BufferedReader file = "-".equals(source) ? null : new BufferedReader(new FileReader(source));
+        final ShellInput input = file != null ? ShellInput.of(file) : ShellInput.current();
+        final ExecutorService executor = parallelism > 1 ? newExecutor() : null;
+        final List<Future<?>> pending = new LinkedList<Future<?>>();
+        final long start = System.nanoTime();
+        try {
+            final Tokenizer tokenizer = new Tokenizer();
+            List<Line> batch = new ArrayList<Line>(batchSize);
+            String text;
+            int lineNumber = 0;
+            while ((text = input.readLine()) != null) {
+                lineNumber++;
+                final String trimmed = text.trim();
+                if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+                    continue;
+                }
+                tokenizer.tokenize(trimmed);
+                final List<String> parameters = new ArrayList<String>(fixedParameters.size() + tokenizer.getTokenCount());
+                parameters.addAll(fixedParameters);
+                batch.add(new Line(lineNumber, trimmed, tokenizer.addTokens(parameters)));
+                if (batch.size() == batchSize) {
+                    submit(executor, pending, batch, call);
+                    batch = new ArrayList<Line>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(executor, pending, batch, call);
+            }
+            for (final Future<?> future : pending) {
+                future.get();
+            }
+        } finally {
+            if (file != null) {
+                file.close();
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        report((System.nanoTime() - start) / 1000000, output);
+        return failed.get() == 0;
+    }
+
+    private ExecutorService newExecutor() {
+        // a bounded queue: the caller runs batches itself instead of reading the whole file ahead of the workers
+        return new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(parallelism),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void submit(final ExecutorService executor, final List<Future<?>> pending, final List<Line> batch, final Call call)
+            throws InterruptedException, ExecutionException {
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                for (final Line line : batch) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    execute(line, call);
+                }
+            }
+        };
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        pending.add(executor.submit(task));
+        // keep only the batches that are still running: a few per worker, whatever the size of the input
+        for (final Iterator<Future<?>> iterator = pending.iterator(); iterator.hasNext();) {
+            final Future<?> future = iterator.next();
+            if (future.isDone()) {
+                iterator.remove();
+                future.get();
+            }
+        }
+    }
+
+    private void execute(final Line line, final Call call) {
+        for (int attempt = 0;; attempt++) {
+            try {
+                call.call(line.parameters);
+                succeeded.incrementAndGet();
+                return;
+            } catch (final IllegalArgumentException e) {
+                // wrong parameters, it would fail again
+                fail(line, e);
+                return;
+            } catch (final Exception e) {
+                if (attempt >= retries) {
+                    fail(line, e);
+                    return;
+                }
+                retried.incrementAndGet();
+                try {
+                    Thread.sleep(backoffMillis(attempt));
+                } catch (final InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    fail(line, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return
+     *         the delay doubled at each attempt, at most a minute
+     */
+    private long backoffMillis(final int attempt) {
+        // the backoff is at most Integer.MAX_VALUE: shifted by 16 it does not overflow
+        return Math.min(backoffMillis << Math.min(attempt, 16), MAX_BACKOFF_MILLIS);
+    }
+
+    private void fail(final Line line, final Exception e) {
+        failed.incrementAndGet();
+        if (reportedFailures.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+            failures.add("line " + line.number + ": " + line.text + ": " + e);
+        }
+    }
+
+    private void report(final long durationMillis, final ShellOutput output) {
+        final long calls = succeeded.get() + failed.get();
+        final double perSecond = durationMillis > 0 ? calls * 1000d / durationMillis : calls;
+        output.printf(Locale.ENGLISH, "%d calls in %d ms (%.1f calls/s): %d succeeded, %d failed, %d retries%n", calls, durationMillis,
+                perSecond, succeeded.get(), failed.get(), retried.get());
+        for (final String failure : failures) {
+            output.println("failed: " + failure);
+        }
+        if (failed.get() > MAX_REPORTED_FAILURES) {
+            output.println("... and " + (failed.get() - MAX_REPORTED_FAILURES) + " other failures");
+        }
+    }
+
+    /**
+     * @return
+     *         usage of the options, printed by the help of the commands
+     */
+    static String getUsage() {
+        return "--each <file|-> [--batch-size lines] [--parallel threads] [--retry count] [--backoff ms]";
+    }
+
+    private static final class Line {
+
+        private final int number;
+
+        private final String text;
+
+        private final List<String> parameters;
+
+        Line(final int number, final String text, final List<String> parameters) {
+            this.number = number;
+            this.text = text;
+            this.parameters = parameters;
+        }
+    }
+
+}
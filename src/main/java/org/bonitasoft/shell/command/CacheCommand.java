@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jline.console.completer.Completer;
+import jline.console.completer.StringsCompleter;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.cache.ResultCache;
+
+/**
+ * Print the statistics of the cache of API results or clear it
+ * 
+ * @author Baptiste Mesta
+ */
+public class CacheCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private static final String STATS = "stats";
+
+    private static final String CLEAR = "clear";
+
+    private final ResultCache resultCache;
+
+    public CacheCommand(final ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public String getName() {
+        return "cache";
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        if (args.isEmpty() || STATS.equals(args.get(0))) {
+            printStats();
+        } else if (!ShellInput.current().isLocal()) {
+            // the cache is shared by all sessions
+            resultCache.invalidateContext(context);
+            getOutput().println("Results cached for this session cleared");
+        } else {
+            resultCache.clear();
+            resultCache.resetStatistics();
+            getOutput().println("Cache cleared");
+        }
+        return true;
+    }
+
+    private void printStats() {
+        final long hits = resultCache.getHits();
+        final long calls = hits + resultCache.getMisses();
+        getOutput().println("size:          " + resultCache.getSize() + " / " + resultCache.getMaxSize());
+        getOutput().println("ttl ms:        " + resultCache.getTimeToLiveMillis());
+        getOutput().println("hits:          " + hits + (calls > 0 ? " (" + hits * 100 / calls + "%)" : ""));
+        getOutput().println("misses:        " + resultCache.getMisses());
+        getOutput().println("evictions:     " + resultCache.getEvictions());
+        getOutput().println("expirations:   " + resultCache.getExpirations());
+        getOutput().println("invalidations: " + resultCache.getInvalidations());
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: cache [stats | clear]");
+        getOutput().println("Print the statistics of the cache of read-only API calls or remove all cached results");
+        getOutput().println("Sessions of a server only remove the results they cached");
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return args.isEmpty() || args.size() == 1 && (STATS.equals(args.get(0)) || CLEAR.equals(args.get(0)));
+    }
+
+    @Override
+    public List<Completer> getCompleters() {
+        return Arrays.asList((Completer) new StringsCompleter(STATS, CLEAR));
+    }
+
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import jline.console.completer.Completer;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.cache.ResultCache;
+import org.bonitasoft.shell.color.PrintColor;
+import org.bonitasoft.shell.command.OverloadResolver.Shape;
+import org.bonitasoft.shell.completer.ReflectMethodCompleter;
+import org.bonitasoft.shell.completer.ReflectMethodHelpCompleter;
+import org.bonitasoft.shell.converter.Converter;
+import org.bonitasoft.shell.converter.ConverterRegistry;
+import org.bonitasoft.shell.render.ResultRenderer;
+
+/**
+ * Base of the commands generated for APIs annotated with {@link ShellApi}
+ * Generated commands behave like a {@link ReflectCommand} but call the API directly: method names and help are
+ * constants, methods are dispatched with a switch and primitive and string arguments are parsed inline.
+ * Other parameter types are converted using the {@link ConverterRegistry}.
+ * Arguments that are not strings, given by a pipeline, are passed as is when they have the type of the parameter
+ * 
+ * @author Baptiste Mesta
+ */
+public abstract class GeneratedApiCommand<T extends ShellContext> extends ShellCommand<T> implements ApiCommand {
+
+    private final String apiName;
+
+    private final ConverterRegistry converterRegistry;
+
+    private List<Completer> completers;
+
+    private volatile ResultCache resultCache;
+
+    /**
+     * @param apiName
+     * @param converterRegistry
+     *            registry used to convert arguments that are not primitives or strings
+     */
+    protected GeneratedApiCommand(final String apiName, final ConverterRegistry converterRegistry) {
+        this.apiName = apiName;
+        this.converterRegistry = converterRegistry;
+    }
+
+    /**
+     * call a method of the API
+     * 
+     * @param api
+     *            the API given by the context
+     * @param methodName
+     * @param parameters
+     *            string representation of the parameters or the parameters themselves
+     * @return
+     *         the result of the method, null if it returns nothing
+     * @throws Exception
+     *             exception thrown by the method itself or if the parameters don't match any method
+     */
+    protected abstract Object invoke(Object api, String methodName, List<?> parameters) throws Exception;
+
+    /**
+     * @param methodName
+     * @return
+     *         true if an overload of the method is annotated with {@link org.bonitasoft.shell.cache.ReadOnly}
+     */
+    protected boolean isReadOnly(final String methodName) {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return apiName;
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        final BulkInvocation bulk = BulkInvocation.fromArguments(args);
+        if (bulk != null) {
+            return executeEach(bulk, args, context);
+        }
+        final ResultRenderer renderer = ResultRenderer.fromArguments(args);
+        final Object result = call(args, context);
+        renderer.render(result, getOutput().getWriter());
+        return false;
+    }
+
+    @Override
+    public Object call(final List<?> args, final ShellContext context) throws Exception {
+        final Object api = context.getApi(apiName);
+        final String methodName = String.valueOf(args.get(0));
+        final List<?> parameters = args.subList(1, args.size());
+        final ResultCache cache = resultCache;
+        if (cache == null) {
+            return invoke(api, methodName, parameters);
+        }
+        final boolean readOnly = isReadOnly(methodName) || cache.isReadOnly(methodName);
+        return cache.call(context, apiName, methodName, parameters, readOnly, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                return invoke(api, methodName, parameters);
+            }
+        });
+    }
+
+    private boolean executeEach(final BulkInvocation bulk, final List<String> args, final ShellContext context) throws Exception {
+        final Object api = context.getApi(apiName);
+        final String methodName = args.get(0);
+        try {
+            return bulk.execute(args.subList(1, args.size()), new BulkInvocation.Call() {
+
+                @Override
+                public Object call(final List<String> parameters) throws Exception {
+                    return invoke(api, methodName, parameters);
+                }
+            }, getOutput());
+        } finally {
+            final ResultCache cache = resultCache;
+            if (cache != null) {
+                cache.invalidate(apiName);
+            }
+        }
+    }
+
+    @Override
+    public void setResultCache(final ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public String getMetricName(final List<String> args) {
+        return args.isEmpty() ? apiName : apiName + '.' + args.get(0);
+    }
+
+    @Override
+    public void printHelp() {
+        PrintColor.printGreenBold(apiName + " <method name> <parameters> [--format text|table|jsonl|csv] [--offset n] [--limit n]");
+        PrintColor.printGreenBold(apiName + " <method name> [<parameters>] " + BulkInvocation.getUsage());
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return !args.isEmpty();
+    }
+
+    @Override
+    public List<Completer> getCompleters() {
+        if (completers == null) {
+            completers = Arrays.<Completer> asList(new ReflectMethodCompleter(this), new ReflectMethodHelpCompleter(this));
+        }
+        return completers;
+    }
+
+    /**
+     * choose between overloads having the same name and the same number of parameters, ties are resolved by the order
+     * of the candidates
+     * 
+     * @param parameters
+     * @param candidates
+     *            parameter types of each overload
+     * @return
+     *         the index of the candidate that best matches the parameters, -1 if none does
+     */
+    protected final int select(final List<?> parameters, final Class<?>[][] candidates) {
+        final Shape[] shapes = new Shape[parameters.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = Shape.of(parameters.get(i));
+        }
+        int best = -1;
+        int bestScore = OverloadResolver.INCOMPATIBLE;
+        for (int candidate = 0; candidate < candidates.length; candidate++) {
+            int score = 0;
+            for (int i = 0; i < shapes.length && score != OverloadResolver.INCOMPATIBLE; i++) {
+                final int parameterScore = OverloadResolver.score(converterRegistry, candidates[candidate][i], parameters.get(i), shapes[i]);
+                score = parameterScore == OverloadResolver.INCOMPATIBLE ? OverloadResolver.INCOMPATIBLE : score + parameterScore;
+            }
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * numbers that can't be widened to a long, e.g. a double, are parsed like reflective commands do
+     */
+    protected static long asLong(final Object parameter) {
+        if (parameter instanceof Long || parameter instanceof Integer || parameter instanceof Short || parameter instanceof Byte) {
+            return ((Number) parameter).longValue();
+        }
+        return Long.parseLong(String.valueOf(parameter));
+    }
+
+    /**
+     * numbers that can't be widened to an int are parsed like reflective commands do: a long out of range is rejected
+     * instead of being truncated
+     */
+    protected static int asInt(final Object parameter) {
+        if (parameter instanceof Integer || parameter instanceof Short || parameter instanceof Byte) {
+            return ((Number) parameter).intValue();
+        }
+        return Integer.parseInt(String.valueOf(parameter));
+    }
+
+    protected static double asDouble(final Object parameter) {
+        return parameter instanceof Number ? ((Number) parameter).doubleValue() : Double.parseDouble(String.valueOf(parameter));
+    }
+
+    /**
+     * numbers other than floats are parsed like reflective commands do instead of being narrowed
+     */
+    protected static float asFloat(final Object parameter) {
+        if (parameter instanceof Float) {
+            return (Float) parameter;
+        }
+        return Float.parseFloat(String.valueOf(parameter));
+    }
+
+    protected static boolean asBoolean(final Object parameter) {
+        return parameter instanceof Boolean ? (Boolean) parameter : Boolean.parseBoolean(String.valueOf(parameter));
+    }
+
+    /**
+     * @return
+     *         the parameter without its surrounding double quotes
+     */
+    protected static String unquote(final Object argument) {
+        if (!(argument instanceof String)) {
+            return argument == null ? null : argument.toString();
+        }
+        final String parameter = (String) argument;
+        final int length = parameter.length();
+        if (length >= 2 && parameter.charAt(0) == '"' && parameter.charAt(length - 1) == '"') {
+            return parameter.substring(1, length - 1);
+        }
+        return parameter;
+    }
+
+    /**
+     * convert a parameter using the registry of this command
+     */
+    protected final Object convert(final Class<?> type, final Object parameter) throws Exception {
+        if (!(parameter instanceof String) && OverloadResolver.wrap(type).isInstance(parameter)) {
+            return parameter;
+        }
+        final Converter<?> converter = converterRegistry.getConverter(type);
+        if (converter == null) {
+            throw new IllegalArgumentException("Parameter can't be converted from a string: " + type.getName());
+        }
+        return converter.convert(String.valueOf(parameter));
+    }
+
+    protected static IllegalArgumentException noSuchMethod(final String methodName) {
+        return new IllegalArgumentException("method does not exists: " + methodName);
+    }
+
+    protected static IllegalArgumentException noOverload(final String methodName, final List<?> parameters) {
+        return new IllegalArgumentException("no overload of " + methodName + " accepts the parameters " + parameters);
+    }
+
+}
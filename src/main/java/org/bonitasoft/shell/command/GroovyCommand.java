@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import groovy.lang.Script;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.groovy.GroovyScriptCache;
+import org.bonitasoft.shell.groovy.ShellBinding;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+/**
+ * Run a groovy script in the shell JVM
+ * The script can use the variable 'context', 'args' and one variable per API of the shell (e.g. processAPI)
+ * Scripts are compiled once, see {@link GroovyScriptCache}
+ * 
+ * @author Baptiste Mesta
+ */
+public class GroovyCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private static final String EXPRESSION = "-e";
+
+    private final HashMap<String, ShellCommand<T>> commands;
+
+    private final GroovyScriptCache scriptCache;
+
+    /**
+     * @param commands
+     *            commands of the shell, each {@link ApiCommand}, lazy or not, gives an API variable to scripts
+     * @param scriptCache
+     */
+    public GroovyCommand(final HashMap<String, ShellCommand<T>> commands, final GroovyScriptCache scriptCache) {
+        this.commands = commands;
+        this.scriptCache = scriptCache;
+    }
+
+    @Override
+    public String getName() {
+        return "groovy";
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        final String scriptText;
+        final List<String> scriptArgs;
+        if (EXPRESSION.equals(args.get(0))) {
+            scriptText = join(args.subList(1, args.size()));
+            scriptArgs = new ArrayList<String>();
+        } else {
+            ShellInput.current().checkFileAccess(args.get(0));
+            scriptText = FileUtils.readFileToString(new File(args.get(0)), "UTF-8");
+            scriptArgs = new ArrayList<String>(args.subList(1, args.size()));
+        }
+        final Object result = run(scriptText, scriptArgs, context);
+        if (result != null) {
+            getOutput().println(result);
+        }
+        return true;
+    }
+
+    /**
+     * @param scriptText
+     * @param scriptArgs
+     *            bound as 'args'
+     * @param context
+     * @return
+     *         the value returned by the script
+     */
+    public Object run(final String scriptText, final List<String> scriptArgs, final T context) {
+        final ShellBinding binding = new ShellBinding(context, getApiNames());
+        // println of the script goes to the output of the shell
+        binding.setVariable("out", getOutput().getWriter());
+        binding.setVariable("args", scriptArgs);
+        final Class<? extends Script> scriptClass = scriptCache.getScriptClass(scriptText);
+        return InvokerHelper.createScript(scriptClass, binding).run();
+    }
+
+    private Set<String> getApiNames() {
+        final Set<String> apiNames = new HashSet<String>();
+        for (final ShellCommand<T> command : commands.values()) {
+            // APIs registered lazily are created here
+            if (LazyShellCommand.unwrap(command) instanceof ApiCommand) {
+                apiNames.add(command.getName());
+            }
+        }
+        return apiNames;
+    }
+
+    private static String join(final List<String> parts) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String part : parts) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: groovy <script.groovy> [arguments] | groovy -e <expression>");
+        getOutput().println("Variables: context, args and one variable per API e.g. " + getApiNames());
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return !args.isEmpty() && (!EXPRESSION.equals(args.get(0)) || args.size() > 1);
+    }
+
+}
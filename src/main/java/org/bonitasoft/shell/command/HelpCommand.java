@@ -14,10 +14,10 @@ import java.util.List;
 import java.util.Set;
 
 import jline.console.completer.Completer;
-import jline.console.completer.StringsCompleter;
 
 import org.bonitasoft.shell.ShellContext;
 import org.bonitasoft.shell.color.PrintColor;
+import org.bonitasoft.shell.completer.ResolvingStringsCompleter;
 
 /**
  * Default implementation of the help command
@@ -28,6 +28,8 @@ public class HelpCommand<T extends ShellContext> extends ShellCommand<T> {
 
     private final HashMap<String, ShellCommand<T>> commands;
 
+    private List<Completer> completers;
+
     /**
      * @param commands
      */
@@ -53,22 +55,37 @@ public class HelpCommand<T extends ShellContext> extends ShellCommand<T> {
 
     @Override
     public List<Completer> getCompleters() {
-        return Arrays.asList((Completer) new StringsCompleter(commands.keySet()));
+        if (completers == null) {
+            completers = Arrays.asList((Completer) new ResolvingStringsCompleter() {
+
+                @Override
+                public List<String> resolveStrings() {
+                    return new ArrayList<String>(commands.keySet());
+                }
+
+                @Override
+                protected boolean isDynamic() {
+                    return false;
+                }
+            });
+        }
+        return completers;
     }
 
     private void printUsage() {
-        System.out.println("-----------------------------------------------");
-        System.out.println("Usage: <Command> <arguments>");
-        System.out.println("Command can be:");
+        getOutput().println("-----------------------------------------------");
+        getOutput().println("Usage: <Command> <arguments>");
+        getOutput().println("Command can be:");
         final Set<String> keySet = commands.keySet();
         final ArrayList<String> list = new ArrayList<String>(keySet);
         Collections.sort(list);
         for (final String entry : list) {
             PrintColor.printGreenBold(entry);
         }
-        System.out.println("");
-        System.out.println("Use 'help <Command>' for help about a command");
-        System.out.println("-----------------------------------------------");
+        getOutput().println("");
+        getOutput().println("Use 'help <Command>' for help about a command");
+        getOutput().println("Chain API calls with |: <api> <method> [args] | map|filter|foreach ... e.g. api search 10 | map id | foreach api cancel $");
+        getOutput().println("-----------------------------------------------");
     }
 
     @Override
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.bonitasoft.shell.converter.Converter;
+import org.bonitasoft.shell.converter.ConverterRegistry;
+
+/**
+ * A method of an API resolved once and ready to be called with string arguments or with objects given by a pipeline
+ * The method handle is adapted to (Object, Object[])Object so it can be called with invokeExact
+ *
+ * @author Baptiste Mesta
+ */
+class InvocationPlan {
+
+    private final Method method;
+
+    private final MethodHandle handle;
+
+    private final Converter<?>[] converters;
+
+    private final Class<?>[] wrappedTypes;
+
+    /**
+     * @param method
+     *            the method to call, its parameters must all be convertible from a String
+     * @param converterRegistry
+     *            registry giving the converter of each parameter
+     * @throws IllegalAccessException
+     *             if the method is not accessible
+     */
+    InvocationPlan(final Method method, final ConverterRegistry converterRegistry) throws IllegalAccessException {
+        this.method = method;
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        converters = new Converter<?>[parameterTypes.length];
+        wrappedTypes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            wrappedTypes[i] = OverloadResolver.wrap(parameterTypes[i]);
+            final Converter<?> converter = converterRegistry.getConverter(parameterTypes[i]);
+            if (converter == null) {
+                throw new IllegalArgumentException("Parameter can't be converted from a string: " + parameterTypes[i].getName());
+            }
+            converters[i] = converter;
+        }
+        handle = MethodHandles.publicLookup().unreflect(method)
+                .asType(MethodType.genericMethodType(parameterTypes.length + 1))
+                .asSpreader(Object[].class, parameterTypes.length);
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @param api
+     *            the object on which the method is called
+     * @param parameters
+     *            string representation of the parameters, or the parameters themselves
+     * @return
+     *         the result of the call
+     * @throws Throwable
+     *             exception thrown by the method itself
+     */
+    Object invoke(final Object api, final List<?> parameters) throws Throwable {
+        final Object[] arguments = new Object[converters.length];
+        for (int i = 0; i < converters.length; i++) {
+            final Object parameter = parameters.get(i);
+            if (parameter == null || parameter instanceof String) {
+                arguments[i] = parameter == null ? null : converters[i].convert((String) parameter);
+            } else {
+                arguments[i] = wrappedTypes[i].isInstance(parameter) ? parameter : converters[i].convert(String.valueOf(parameter));
+            }
+        }
+        return (Object) handle.invokeExact(api, arguments);
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jline.console.completer.Completer;
+import jline.console.completer.StringsCompleter;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.job.Job;
+import org.bonitasoft.shell.job.JobManager;
+
+/**
+ * List commands started in background using '&amp;'
+ * 
+ * @author Baptiste Mesta
+ */
+public class JobsCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private static final String PURGE = "purge";
+
+    private final JobManager jobManager;
+
+    public JobsCommand(final JobManager jobManager) {
+        this.jobManager = jobManager;
+    }
+
+    @Override
+    public String getName() {
+        return "jobs";
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        if (!args.isEmpty()) {
+            jobManager.purge(context);
+        }
+        for (final Job job : jobManager.getJobs(context)) {
+            getOutput().println(job);
+        }
+        return true;
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: jobs [purge]");
+        getOutput().println("List commands started in background with '&', purge forgets finished ones");
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return args.isEmpty() || args.size() == 1 && PURGE.equals(args.get(0));
+    }
+
+    @Override
+    public List<Completer> getCompleters() {
+        return Arrays.asList((Completer) new StringsCompleter(PURGE));
+    }
+
+}
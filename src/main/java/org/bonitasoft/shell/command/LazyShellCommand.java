@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.List;
+
+import jline.console.completer.Completer;
+
+import org.bonitasoft.shell.ShellContext;
+
+/**
+ * A command known by its name only until it is executed, completed or its help is shown
+ * Use it for commands that are expensive to create so that they don't slow down the start of the shell
+ * 
+ * @author Baptiste Mesta
+ */
+public class LazyShellCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private final String name;
+
+    private final ShellCommandFactory<T> factory;
+
+    private volatile ShellCommand<T> delegate;
+
+    /**
+     * @param name
+     *            name of the command, must be the name of the created command
+     * @param factory
+     *            creates the command on first use
+     */
+    public LazyShellCommand(final String name, final ShellCommandFactory<T> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    /**
+     * @return
+     *         the command, created if it was not already
+     */
+    public ShellCommand<T> getDelegate() {
+        ShellCommand<T> command = delegate;
+        if (command == null) {
+            synchronized (this) {
+                command = delegate;
+                if (command == null) {
+                    command = factory.create();
+                    delegate = command;
+                }
+            }
+        }
+        return command;
+    }
+
+    /**
+     * @param command
+     * @return
+     *         the created command if the command is lazy, the command itself otherwise
+     */
+    public static <T extends ShellContext> ShellCommand<T> unwrap(final ShellCommand<T> command) {
+        if (command instanceof LazyShellCommand) {
+            return ((LazyShellCommand<T>) command).getDelegate();
+        }
+        return command;
+    }
+
+    /**
+     * @return
+     *         true if the command was already created
+     */
+    public boolean isCreated() {
+        return delegate != null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        return getDelegate().execute(args, context);
+    }
+
+    @Override
+    public String getMetricName(final List<String> args) {
+        return getDelegate().getMetricName(args);
+    }
+
+    @Override
+    public boolean hasCredentials() {
+        return getDelegate().hasCredentials();
+    }
+
+    @Override
+    public List<Completer> getCompleters() {
+        return getDelegate().getCompleters();
+    }
+
+    @Override
+    public void printHelp() {
+        getDelegate().printHelp();
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return getDelegate().validate(args);
+    }
+
+}
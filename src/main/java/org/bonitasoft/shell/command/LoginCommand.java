@@ -20,26 +20,52 @@ import jline.console.completer.Completer;
 import jline.console.completer.StringsCompleter;
 
 import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.cache.ResultCache;
+import org.bonitasoft.shell.completer.DynamicValueCompleter;
 
 /**
  * @author Baptiste Mesta
  */
 public class LoginCommand<T extends ShellContext> extends ShellCommand<T> {
 
+    private ResultCache resultCache;
+
+    /**
+     * @param resultCache
+     *            cache from which the results of the context are removed when the session changes, can be null
+     */
+    public void setResultCache(final ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * forget the results and the completion values of the previous session
+     */
+    private void invalidateResults(final T context) {
+        DynamicValueCompleter.invalidateContext(context);
+        if (resultCache != null) {
+            resultCache.invalidateContext(context);
+        }
+    }
+
     @Override
     public boolean execute(final List<String> args, final T context) throws Exception {
         if (!context.isLogged()) {
-            context.login(args.get(0), args.get(1));
+            try {
+                context.login(args.get(0), args.get(1));
+            } finally {
+                invalidateResults(context);
+            }
             return true;
         } else {
-            System.out.println("Already logged to the tenant!");
+            getOutput().println("Already logged to the tenant!");
         }
         return false;
     }
 
     @Override
     public void printHelp() {
-        System.out.println("Usage: login <username> <password>");
+        getOutput().println("Usage: login <username> <password>");
     }
 
     @Override
@@ -57,4 +83,9 @@ public class LoginCommand<T extends ShellContext> extends ShellCommand<T> {
         return "login";
     }
 
+    @Override
+    public boolean hasCredentials() {
+        return true;
+    }
+
 }
@@ -16,27 +16,53 @@ package org.bonitasoft.shell.command;
 import java.util.List;
 
 import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.cache.ResultCache;
+import org.bonitasoft.shell.completer.DynamicValueCompleter;
 
 /**
  * @author Baptiste Mesta
  */
 public class LogoutCommand<T extends ShellContext> extends ShellCommand<T> {
 
+    private ResultCache resultCache;
+
+    /**
+     * @param resultCache
+     *            cache from which the results of the context are removed when the session changes, can be null
+     */
+    public void setResultCache(final ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * forget the results and the completion values of the previous session
+     */
+    private void invalidateResults(final T context) {
+        DynamicValueCompleter.invalidateContext(context);
+        if (resultCache != null) {
+            resultCache.invalidateContext(context);
+        }
+    }
+
     @Override
     public boolean execute(final List<String> args, final T context) throws Exception {
         if (context.isLogged()) {
-            context.logout();
-            System.out.println("Logged out");
+            try {
+                context.logout();
+            } finally {
+                invalidateResults(context);
+            }
+            getOutput().println("Logged out");
             return true;
         } else {
-            System.out.println("Not logged in");
+            getOutput().println("Not logged in");
             return false;
         }
     }
 
     @Override
     public void printHelp() {
-        System.out.println("Usage: logout");
+        getOutput().println("Usage: logout");
     }
 
     @Override
@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Names and parameter types of the methods of an API, used to complete and to show help without reflection
+ * The index is read from the resource {@value #RESOURCE_PREFIX}&lt;class name&gt; when it was generated at build time
+ * using {@link #main(String[])}, otherwise it is built using reflection on the API class.
+ * Each line of the resource is a method: its name, a tab and the simple names of its parameter types separated by commas
+ * 
+ * @author Baptiste Mesta
+ */
+public class MethodIndex {
+
+    public static final String RESOURCE_PREFIX = "META-INF/shell-base/methods/";
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    private final Map<String, List<String[]>> overloads;
+
+    private final List<String> methodNames;
+
+    private MethodIndex(final Map<String, List<String[]>> overloads) {
+        this.overloads = overloads;
+        final List<String> names = new ArrayList<String>(overloads.keySet());
+        Collections.sort(names);
+        methodNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param apiClass
+     * @return
+     *         the index generated for the class if it is on the classpath, the index built using reflection otherwise
+     * @throws IOException
+     *             if the generated index can't be read
+     */
+    public static MethodIndex of(final Class<?> apiClass) throws IOException {
+        final ClassLoader classLoader = apiClass.getClassLoader() != null ? apiClass.getClassLoader() : ClassLoader.getSystemClassLoader();
+        final InputStream resource = classLoader.getResourceAsStream(RESOURCE_PREFIX + apiClass.getName());
+        if (resource == null) {
+            return scan(apiClass);
+        }
+        try {
+            return read(new InputStreamReader(resource, CHARSET));
+        } finally {
+            resource.close();
+        }
+    }
+
+    /**
+     * @param apiClass
+     * @return
+     *         the index of the public methods of the class
+     */
+    public static MethodIndex scan(final Class<?> apiClass) {
+        final Map<String, List<String[]>> overloads = new LinkedHashMap<String, List<String[]>>();
+        for (final Method method : apiClass.getMethods()) {
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            final String[] parameters = new String[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameters[i] = parameterTypes[i].getSimpleName();
+            }
+            add(overloads, method.getName(), parameters);
+        }
+        return new MethodIndex(overloads);
+    }
+
+    /**
+     * @param reader
+     *            index in the format written by {@link #write(Writer)}
+     * @return
+     *         the index
+     * @throws IOException
+     */
+    public static MethodIndex read(final Reader reader) throws IOException {
+        final BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        final Map<String, List<String[]>> overloads = new LinkedHashMap<String, List<String[]>>();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            final int tab = line.indexOf('\t');
+            if (tab < 0) {
+                add(overloads, line, NO_PARAMETERS);
+            } else {
+                add(overloads, line.substring(0, tab), splitParameters(line, tab + 1));
+            }
+        }
+        return new MethodIndex(overloads);
+    }
+
+    private static String[] splitParameters(final String line, final int start) {
+        if (start == line.length()) {
+            return NO_PARAMETERS;
+        }
+        int count = 1;
+        for (int i = start; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                count++;
+            }
+        }
+        final String[] parameters = new String[count];
+        int from = start;
+        for (int i = 0; i < count - 1; i++) {
+            final int comma = line.indexOf(',', from);
+            parameters[i] = line.substring(from, comma);
+            from = comma + 1;
+        }
+        parameters[count - 1] = line.substring(from);
+        return parameters;
+    }
+
+    private static void add(final Map<String, List<String[]>> overloads, final String methodName, final String[] parameters) {
+        List<String[]> list = overloads.get(methodName);
+        if (list == null) {
+            list = new ArrayList<String[]>();
+            overloads.put(methodName, list);
+        }
+        list.add(parameters);
+    }
+
+    /**
+     * @param writer
+     *            where the index is written, not closed
+     * @throws IOException
+     */
+    public void write(final Writer writer) throws IOException {
+        for (final Entry<String, List<String[]>> entry : overloads.entrySet()) {
+            for (final String[] parameters : entry.getValue()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                for (int i = 0; i < parameters.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(parameters[i]);
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return
+     *         sorted names of the methods
+     */
+    public List<String> getMethodNames() {
+        return methodNames;
+    }
+
+    /**
+     * @param methodName
+     * @return
+     *         one line per overload of the method, null if there is no such method
+     */
+    public String getMethodHelp(final String methodName) {
+        final List<String[]> list = overloads.get(methodName);
+        if (list == null) {
+            return null;
+        }
+        final StringBuilder help = new StringBuilder();
+        for (final String[] parameters : list) {
+            help.append(methodName).append('(');
+            for (final String parameter : parameters) {
+                help.append(parameter).append(", ");
+            }
+            help.append(")\n");
+        }
+        return help.toString();
+    }
+
+    /**
+     * Generate the index of API classes, e.g. from the process-classes phase of the build
+     * 
+     * @param args
+     *            the output directory (e.g. target/classes) followed by the names of the API classes
+     * @throws Exception
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: MethodIndex <output directory> <api class>...");
+            System.exit(1);
+        }
+        final File directory = new File(args[0], RESOURCE_PREFIX);
+        directory.mkdirs();
+        for (int i = 1; i < args.length; i++) {
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, args[i])), CHARSET);
+            try {
+                writer.write("# generated by " + MethodIndex.class.getName() + "\n");
+                scan(Class.forName(args[i])).write(writer);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+}
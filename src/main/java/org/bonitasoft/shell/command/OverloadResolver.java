@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bonitasoft.shell.converter.ConverterRegistry;
+
+/**
+ * Choose between overloaded methods of an API using the shape of the given arguments
+ * (integer, decimal, boolean, quoted string or plain word, or an object given by a pipeline).
+ * The chosen method is memoized per shape so that resolution is done only once per call signature
+ *
+ * @author Baptiste Mesta
+ */
+class OverloadResolver {
+
+    static final int INCOMPATIBLE = -1;
+
+    private final Map<String, List<Method>> candidatesByArity = new HashMap<String, List<Method>>();
+
+    private final ConcurrentMap<String, InvocationPlan> plans = new ConcurrentHashMap<String, InvocationPlan>();
+
+    private final ConverterRegistry converterRegistry;
+
+    /**
+     * @param methods
+     *            all methods of the API
+     * @param converterRegistry
+     *            registry giving the types that can be converted from a string
+     */
+    OverloadResolver(final Method[] methods, final ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+        for (final Method method : methods) {
+            final String key = method.getName() + '/' + method.getParameterTypes().length;
+            List<Method> candidates = candidatesByArity.get(key);
+            if (candidates == null) {
+                candidates = new ArrayList<Method>();
+                candidatesByArity.put(key, candidates);
+            }
+            candidates.add(method);
+        }
+        // getMethods() has no particular order: make ties always resolve the same way
+        for (final List<Method> candidates : candidatesByArity.values()) {
+            Collections.sort(candidates, new Comparator<Method>() {
+
+                @Override
+                public int compare(final Method o1, final Method o2) {
+                    return o1.toString().compareTo(o2.toString());
+                }
+            });
+        }
+    }
+
+    /**
+     * @param methodName
+     * @param parameters
+     *            strings to convert or objects given as is
+     * @return
+     *         the plan of the overload that best matches the parameters
+     * @throws IllegalAccessException
+     */
+    InvocationPlan resolve(final String methodName, final List<?> parameters) throws IllegalAccessException {
+        final StringBuilder signature = new StringBuilder(methodName.length() + parameters.size() + 4);
+        signature.append(methodName).append('/').append(parameters.size()).append('/');
+        final Shape[] shapes = new Shape[parameters.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = Shape.of(parameters.get(i));
+            signature.append(shapes[i].code);
+            if (shapes[i] == Shape.OBJECT) {
+                // the chosen overload depends on the class of the object
+                signature.append('(').append(parameters.get(i).getClass().getName()).append(')');
+            }
+        }
+        final String key = signature.toString();
+        InvocationPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = new InvocationPlan(selectMethod(methodName, parameters, shapes), converterRegistry);
+            final InvocationPlan existing = plans.putIfAbsent(key, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    private Method selectMethod(final String methodName, final List<?> parameters, final Shape[] shapes) {
+        final List<Method> candidates = candidatesByArity.get(methodName + '/' + shapes.length);
+        if (candidates == null) {
+            throw new IllegalArgumentException("method does not exists");
+        }
+        Method best = null;
+        int bestScore = INCOMPATIBLE;
+        for (final Method candidate : candidates) {
+            final int score = score(candidate.getParameterTypes(), parameters, shapes);
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            throw new IllegalArgumentException("no overload of " + methodName + " accepts the parameters " + parameters);
+        }
+        return best;
+    }
+
+    private int score(final Class<?>[] parameterTypes, final List<?> parameters, final Shape[] shapes) {
+        int total = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final int score = score(converterRegistry, parameterTypes[i], parameters.get(i), shapes[i]);
+            if (score == INCOMPATIBLE) {
+                return INCOMPATIBLE;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    /**
+     * @return
+     *         how well an argument of the given shape matches the type, {@link #INCOMPATIBLE} if it can't be converted
+     */
+    static int score(final ConverterRegistry converterRegistry, final Class<?> type, final Object parameter, final Shape shape) {
+        if (shape == Shape.OBJECT) {
+            if (wrap(type).isInstance(parameter)) {
+                return 5;
+            }
+            // converted from its string representation
+            return converterRegistry.canConvert(type) ? 0 : INCOMPATIBLE;
+        }
+        if (!converterRegistry.canConvert(type)) {
+            return INCOMPATIBLE;
+        }
+        if (type == String.class) {
+            return shape == Shape.QUOTED ? 4 : shape == Shape.WORD ? 3 : 1;
+        }
+        if (!type.isPrimitive() && !Number.class.isAssignableFrom(type) && type != Boolean.class) {
+            // enums, dates, JSON literals...: let the converter decide
+            return shape == Shape.WORD ? 2 : 1;
+        }
+        switch (shape) {
+            case INTEGER:
+                if (type == long.class || type == Long.class) {
+                    return 4;
+                }
+                if (type == int.class || type == Integer.class) {
+                    return 3;
+                }
+                if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+                    return 2;
+                }
+                return INCOMPATIBLE;
+            case LONG:
+                if (type == long.class || type == Long.class) {
+                    return 4;
+                }
+                if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+                    return 2;
+                }
+                return INCOMPATIBLE;
+            case DECIMAL:
+                return type == double.class || type == Double.class || type == float.class || type == Float.class ? 4 : INCOMPATIBLE;
+            case BOOLEAN:
+                return type == boolean.class || type == Boolean.class ? 4 : INCOMPATIBLE;
+            default:
+                return INCOMPATIBLE;
+        }
+    }
+
+    /**
+     * @return
+     *         the wrapper of a primitive type, the type itself otherwise
+     */
+    static Class<?> wrap(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        if (type == char.class) {
+            return Character.class;
+        }
+        return Void.class;
+    }
+
+    /**
+     * What an argument looks like
+     */
+    enum Shape {
+        INTEGER('I'), LONG('L'), DECIMAL('D'), BOOLEAN('B'), QUOTED('Q'), WORD('W'), OBJECT('O');
+
+        private final char code;
+
+        private Shape(final char code) {
+            this.code = code;
+        }
+
+        static Shape of(final Object argument) {
+            if (argument == null) {
+                return WORD;
+            }
+            if (!(argument instanceof String)) {
+                return OBJECT;
+            }
+            final String parameter = (String) argument;
+            if (parameter.isEmpty()) {
+                return WORD;
+            }
+            final int length = parameter.length();
+            if (length >= 2 && parameter.charAt(0) == '"' && parameter.charAt(length - 1) == '"') {
+                return QUOTED;
+            }
+            if ("true".equalsIgnoreCase(parameter) || "false".equalsIgnoreCase(parameter)) {
+                return BOOLEAN;
+            }
+            int i = parameter.charAt(0) == '-' || parameter.charAt(0) == '+' ? 1 : 0;
+            if (i == length) {
+                return WORD;
+            }
+            boolean dot = false;
+            boolean digit = false;
+            for (; i < length; i++) {
+                final char c = parameter.charAt(i);
+                if (c == '.' && !dot) {
+                    dot = true;
+                } else if (c >= '0' && c <= '9') {
+                    digit = true;
+                } else {
+                    return WORD;
+                }
+            }
+            if (!digit) {
+                return WORD;
+            }
+            if (dot) {
+                return DECIMAL;
+            }
+            return fitsInInt(parameter) ? INTEGER : LONG;
+        }
+
+        private static boolean fitsInInt(final String parameter) {
+            try {
+                Integer.parseInt(parameter);
+                return true;
+            } catch (final NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.shell.BaseShell;
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellContextPool;
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.color.ShellOutput;
+
+/**
+ * Execute the commands of a file using several threads
+ * Each thread has its own context taken from a {@link ShellContextPool} and logged in with the given credentials
+ * Contexts are given back to the pool so that next runs don't have to login again
+ * Results are reported in the order of the file once all commands are executed
+ * 
+ * @author Baptiste Mesta
+ */
+public class ParallelCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private final BaseShell<T> shell;
+
+    private final ShellContextPool<T> contextPool;
+
+    /**
+     * @param shell
+     *            the shell used to execute each line
+     * @param contextPool
+     *            pool giving the context of each thread
+     */
+    public ParallelCommand(final BaseShell<T> shell, final ShellContextPool<T> contextPool) {
+        this.shell = shell;
+        this.contextPool = contextPool;
+    }
+
+    @Override
+    public String getName() {
+        return "parallel";
+    }
+
+    @Override
+    public boolean hasCredentials() {
+        return true;
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        final int threads = Integer.parseInt(args.get(0));
+        ShellInput.current().checkFileAccess(args.get(1));
+        final List<String> lines = readLines(args.get(1));
+        final String username = args.get(2);
+        final String password = args.get(3);
+        final LineResult[] results = new LineResult[lines.size()];
+        final AtomicInteger next = new AtomicInteger();
+        final long start = System.nanoTime();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> workers = new ArrayList<Future<?>>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(new Worker(lines, results, next, username, password, ShellInput.current().background())));
+            }
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return report(lines, results, (System.nanoTime() - start) / 1000000);
+    }
+
+    private boolean report(final List<String> lines, final LineResult[] results, final long durationMillis) {
+        int failed = 0;
+        for (int i = 0; i < results.length; i++) {
+            final LineResult result = results[i];
+            if (result != null) {
+                getOutput().print(result.output);
+            }
+            if (result == null || !result.success) {
+                failed++;
+                getOutput().println("failed: " + lines.get(i));
+                if (result != null && result.error != null) {
+                    getOutput().println("    " + result.error);
+                }
+            }
+        }
+        getOutput().println(results.length + " commands executed, " + failed + " failed in " + durationMillis + " ms");
+        getOutput().println("sessions: " + contextPool.getHits() + " reused, " + contextPool.getMisses() + " created");
+        return failed == 0;
+    }
+
+    private List<String> readLines(final String file) throws Exception {
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String trimmed = line.trim();
+                if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                    lines.add(trimmed);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: parallel <threads> <command file> <username> <password>");
+        getOutput().println("Execute each line of the file using <threads> sessions logged in with the given user");
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        if (args.size() != 4) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(args.get(0)) > 0;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static class LineResult {
+
+        private final boolean success;
+
+        private final Throwable error;
+
+        private final String output;
+
+        LineResult(final boolean success, final Throwable error, final String output) {
+            this.success = success;
+            this.error = error;
+            this.output = output;
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final List<String> lines;
+
+        private final LineResult[] results;
+
+        private final AtomicInteger next;
+
+        private final String username;
+
+        private final String password;
+
+        private final ShellInput input;
+
+        Worker(final List<String> lines, final LineResult[] results, final AtomicInteger next, final String username, final String password,
+                final ShellInput input) {
+            this.lines = lines;
+            this.results = results;
+            this.next = next;
+            this.username = username;
+            this.password = password;
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            final T workerContext;
+            try {
+                workerContext = contextPool.acquire(username, password);
+            } catch (final Exception e) {
+                // lines not taken by this worker are executed by the others
+                e.printStackTrace();
+                return;
+            }
+            final ShellInput previousInput = ShellInput.bind(input);
+            try {
+                int index;
+                while ((index = next.getAndIncrement()) < lines.size()) {
+                    // output of each line is captured so that it is printed in the order of the file
+                    final StringWriter lineOutput = new StringWriter();
+                    final ShellOutput previous = ShellOutput.bind(new ShellOutput(lineOutput, false));
+                    boolean success = false;
+                    Exception error = null;
+                    try {
+                        success = shell.executeLine(lines.get(index), workerContext);
+                    } catch (final Exception e) {
+                        error = e;
+                    } finally {
+                        ShellOutput.restore(previous);
+                    }
+                    results[index] = new LineResult(success, error, lineOutput.toString());
+                }
+            } finally {
+                ShellInput.restore(previousInput);
+                contextPool.release(workerContext);
+            }
+        }
+    }
+
+}
@@ -15,52 +15,98 @@
  */
 package org.bonitasoft.shell.command;
 
-import java.io.Serializable;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 import jline.console.completer.Completer;
 
 import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.cache.ResultCache;
 import org.bonitasoft.shell.color.PrintColor;
 import org.bonitasoft.shell.completer.ReflectMethodCompleter;
 import org.bonitasoft.shell.completer.ReflectMethodHelpCompleter;
+import org.bonitasoft.shell.converter.ConverterRegistry;
+import org.bonitasoft.shell.render.ResultRenderer;
 
 /**
+ * Call the methods of an API
+ * Nothing is done using reflection when the command is created: methods are indexed the first time the command is
+ * completed, using the {@link MethodIndex} generated at build time if any, and overloads are resolved the first time it
+ * is executed
+ * 
  * @author Baptiste Mesta
  * 
  */
-public class ReflectCommand<T extends ShellContext> extends ShellCommand<T> {
+public class ReflectCommand<T extends ShellContext> extends ShellCommand<T> implements ApiCommand {
 
     private final String apiName;
 
-    private final Method[] methods;
+    private final Class<?> apiClass;
+
+    private final ConverterRegistry converterRegistry;
+
+    private volatile MethodIndex methodIndex;
+
+    private volatile OverloadResolver overloadResolver;
 
-    private final ArrayList<String> methodNames;
+    private List<Completer> completers;
 
-    private final Map<String, List<Method>> methodMap = new HashMap<String, List<Method>>();
+    private volatile ResultCache resultCache;
 
     public ReflectCommand(final String apiName, final Class<?> apiClass) {
+        this(apiName, apiClass, ConverterRegistry.getDefault());
+    }
+
+    /**
+     * @param apiName
+     * @param apiClass
+     * @param converterRegistry
+     *            registry used to convert string arguments to the types of the parameters
+     */
+    public ReflectCommand(final String apiName, final Class<?> apiClass, final ConverterRegistry converterRegistry) {
         this.apiName = apiName;
-        methods = apiClass.getMethods();
-        HashSet<String> hashSet = new HashSet<String>();
-        for (Method m : methods) {
-            String methodName = m.getName();
-            hashSet.add(methodName);
-            if (!methodMap.containsKey(methodName)) {
-                methodMap.put(methodName, new ArrayList<Method>());
+        this.apiClass = apiClass;
+        this.converterRegistry = converterRegistry;
+    }
+
+    private OverloadResolver getOverloadResolver() {
+        OverloadResolver resolver = overloadResolver;
+        if (resolver == null) {
+            synchronized (this) {
+                resolver = overloadResolver;
+                if (resolver == null) {
+                    resolver = new OverloadResolver(apiClass.getMethods(), converterRegistry);
+                    overloadResolver = resolver;
+                }
+            }
+        }
+        return resolver;
+    }
+
+    /**
+     * @return
+     *         the index of the methods of the API, loaded on first call
+     */
+    public MethodIndex getMethodIndex() {
+        MethodIndex index = methodIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = methodIndex;
+                if (index == null) {
+                    try {
+                        index = MethodIndex.of(apiClass);
+                    } catch (IOException e) {
+                        // generated index is unreadable: fall back on reflection
+                        index = MethodIndex.scan(apiClass);
+                    }
+                    methodIndex = index;
+                }
             }
-            methodMap.get(methodName).add(m);
         }
-        methodNames = new ArrayList<String>(hashSet);
-        Collections.sort(methodNames);
+        return index;
     }
 
     @Override
@@ -70,79 +116,93 @@ public class ReflectCommand<T extends ShellContext> extends ShellCommand<T> {
 
     @Override
     public boolean execute(final List<String> args, final T context) throws Exception {
-        Object api = context.getApi(apiName);
-        String methodName = args.get(0);
-        List<String> parameters = args.subList(1, args.size());
-        Method method = getMethod(methodName, methods, parameters);
-        if (method != null) {
-            Object result = invokeMethod(api, method, parameters);
-            System.out.println(result);
+        final BulkInvocation bulk = BulkInvocation.fromArguments(args);
+        if (bulk != null) {
+            return executeEach(bulk, args, context);
         }
+        ResultRenderer renderer = ResultRenderer.fromArguments(args);
+        Object result = call(args, context);
+        // the output is already buffered, rows are written straight to it
+        renderer.render(result, getOutput().getWriter());
         return false;
     }
 
+    @Override
+    public Object call(final List<?> args, final ShellContext context) throws Exception {
+        final Object api = context.getApi(apiName);
+        final String methodName = String.valueOf(args.get(0));
+        final List<?> parameters = args.subList(1, args.size());
+        final InvocationPlan plan = getOverloadResolver().resolve(methodName, parameters);
+        final ResultCache cache = resultCache;
+        if (cache == null) {
+            return invoke(plan, api, parameters);
+        }
+        return cache.call(context, apiName, methodName, parameters, cache.isReadOnly(plan.getMethod()), new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                return invoke(plan, api, parameters);
+            }
+        });
+    }
+
     /**
-     * @param api
-     * @param method
-     * @param parameters
-     * @return
-     * @throws InvocationTargetException
-     * @throws IllegalAccessException
-     * @throws IllegalArgumentException
+     * call the method once per line given by the bulk invocation, bypassing the cache and the rendering of results
      */
-    private Object invokeMethod(final Object api, final Method method, final List<String> parameters) throws IllegalArgumentException, IllegalAccessException,
-            InvocationTargetException {
-        return method.invoke(api, castParameters(method.getParameterTypes(), parameters));
+    private boolean executeEach(final BulkInvocation bulk, final List<String> args, final ShellContext context) throws Exception {
+        final Object api = context.getApi(apiName);
+        final String methodName = args.get(0);
+        final OverloadResolver resolver = getOverloadResolver();
+        try {
+            return bulk.execute(args.subList(1, args.size()), new BulkInvocation.Call() {
+
+                @Override
+                public Object call(final List<String> parameters) throws Exception {
+                    // resolved once per shape of parameters
+                    return invoke(resolver.resolve(methodName, parameters), api, parameters);
+                }
+            }, getOutput());
+        } finally {
+            final ResultCache cache = resultCache;
+            if (cache != null) {
+                cache.invalidate(apiName);
+            }
+        }
+    }
+
+    @Override
+    public void setResultCache(final ResultCache resultCache) {
+        this.resultCache = resultCache;
     }
 
     /**
-     * @param classes
+     * @param plan
+     * @param api
      * @param parameters
      * @return
+     * @throws Exception
      */
-    private Object[] castParameters(final Class<?>[] classes, final List<String> parameters) {
-        List<Object> list = new ArrayList<Object>(parameters.size());
-        for (int i = 0; i < classes.length; i++) {
-            Class<?> clazz = classes[i];
-            Object parameterClass = clazz.getName();
-            String parameter = parameters.get(i);
-            Serializable casted;
-            if (parameter == null) {
-                casted = null;
-            } else if (Boolean.class.getName().equals(parameterClass) || "bool".equals(parameterClass)) {
-                casted = Boolean.parseBoolean(parameter);
-            } else if (Long.class.getName().equals(parameterClass) || "long".equals(parameterClass)) {
-                casted = Long.parseLong(parameter);
-            } else if (Double.class.getName().equals(parameterClass) || "double".equals(parameterClass)) {
-                casted = Double.parseDouble(parameter);
-            } else if (Float.class.getName().equals(parameterClass) || "float".equals(parameterClass)) {
-                casted = Float.parseFloat(parameter);
-            } else if (Integer.class.getName().equals(parameterClass) || "int".equals(parameterClass)) {
-                casted = Integer.parseInt(parameter);
-            } else if (String.class.getName().equals(parameterClass)) {
-                casted = parameter;
-            } else {
-                throw new IllegalArgumentException("Parameter is not a primitive: " + parameter);
-            }
-            list.add(casted);
+    private Object invoke(final InvocationPlan plan, final Object api, final List<?> parameters) throws Exception {
+        try {
+            return plan.invoke(api, parameters);
+        } catch (Exception e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
         }
-        return list.toArray();
     }
 
-    private Method getMethod(final String methodName, final Method[] methods, final List<String> parameters) {
-        for (Method method : methods) {
-            if (method.getName().equals(methodName)) {
-                if (method.getParameterTypes().length == parameters.size()) {
-                    return method;
-                }
-            }
-        }
-        throw new IllegalArgumentException("method does not exists");
+    @Override
+    public String getMetricName(final List<String> args) {
+        return args.isEmpty() ? apiName : apiName + '.' + args.get(0);
     }
 
     @Override
     public void printHelp() {
-        PrintColor.printGreenBold(apiName + " <method name> <parameters>");
+        PrintColor.printGreenBold(apiName + " <method name> <parameters> [--format text|table|jsonl|csv] [--offset n] [--limit n]");
+        PrintColor.printGreenBold(apiName + " <method name> [<parameters>] " + BulkInvocation.getUsage());
 
     }
 
@@ -153,33 +213,20 @@ public class ReflectCommand<T extends ShellContext> extends ShellCommand<T> {
 
     @Override
     public List<Completer> getCompleters() {
-        return Arrays.<Completer> asList(new ReflectMethodCompleter(this), new ReflectMethodHelpCompleter(this));
+        // built once: the method completer indexes the method names on first use
+        if (completers == null) {
+            completers = Arrays.<Completer> asList(new ReflectMethodCompleter(this), new ReflectMethodHelpCompleter(this));
+        }
+        return completers;
     }
 
-    /**
-     * @return
-     */
+    @Override
     public List<String> getMethodNames() {
-        return methodNames;
+        return getMethodIndex().getMethodNames();
     }
 
-    /**
-     * @param methodName
-     */
+    @Override
     public String getMethodHelp(final String methodName) {
-        List<Method> list = methodMap.get(methodName);
-        if (list != null) {
-            String help = "";
-            for (Method method : list) {
-                help += methodName + "(";
-                Class<?>[] parameterTypes = method.getParameterTypes();
-                for (Class<?> class1 : parameterTypes) {
-                    help += class1.getSimpleName() + ", ";
-                }
-                help += ")\n";
-            }
-            return help;
-        }
-        return null;
+        return getMethodIndex().getMethodHelp(methodName);
     }
 }
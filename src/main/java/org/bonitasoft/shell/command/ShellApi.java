@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark an API for which the shell-base-processor module generates a {@link GeneratedApiCommand}
+ * The annotation is put on the API interface itself, or on any type of the project with {@link #api()} giving the
+ * interface when it comes from a library
+ * 
+ * @author Baptiste Mesta
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ShellApi {
+
+    /**
+     * @return
+     *         name of the API given to {@link org.bonitasoft.shell.ShellContext#getApi(String)}, also the name of the command
+     */
+    String value();
+
+    /**
+     * @return
+     *         the API interface, the annotated type by default
+     */
+    Class<?> api() default void.class;
+
+    /**
+     * @return
+     *         simple name of the generated command, &lt;API simple name&gt;Command by default
+     */
+    String className() default "";
+
+}
@@ -13,6 +13,7 @@ import java.util.List;
 import jline.console.completer.Completer;
 
 import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.color.ShellOutput;
 
 /**
  * A command that can be contributed to a shell
@@ -34,6 +35,26 @@ public abstract class ShellCommand<T extends ShellContext> {
      */
     public abstract boolean execute(List<String> args, T context) throws Exception;
 
+    /**
+     * name under which the execution of the command is recorded by {@link org.bonitasoft.shell.metrics.CommandListener}s
+     * 
+     * @param args
+     *            arguments given to the command
+     * @return
+     *         the name of the command by default
+     */
+    public String getMetricName(final List<String> args) {
+        return getName();
+    }
+
+    /**
+     * @return
+     *         true if the arguments of the command hold credentials, its lines are then not kept in the history
+     */
+    public boolean hasCredentials() {
+        return false;
+    }
+
     public List<Completer> getCompleters() {
         return Collections.emptyList();
     }
@@ -52,6 +73,14 @@ public abstract class ShellCommand<T extends ShellContext> {
      */
     public abstract boolean validate(List<String> args);
 
+    /**
+     * @return
+     *         the output to use to print text, commands should not use System.out
+     */
+    protected ShellOutput getOutput() {
+        return ShellOutput.current();
+    }
+
     /**
      * utiliy method to get argument after an other argument:
      * e.g. if '-u user' is given to the command this return the 'user'
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import jline.console.completer.Completer;
+import jline.console.completer.StringsCompleter;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.metrics.CommandMetrics;
+import org.bonitasoft.shell.metrics.LatencyHistogram;
+
+/**
+ * Print latency, errors and allocations of the commands executed so far
+ * 
+ * @author Baptiste Mesta
+ */
+public class StatsCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private static final String RESET = "reset";
+
+    private static final String CSV = "csv";
+
+    private final CommandMetrics metrics;
+
+    public StatsCommand(final CommandMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        if (args.isEmpty()) {
+            printStats();
+        } else if (RESET.equals(args.get(0))) {
+            if (!ShellInput.current().isLocal()) {
+                getOutput().println("Statistics are shared by all sessions, they can only be cleared by the shell");
+                return false;
+            }
+            metrics.reset();
+            getOutput().println("Statistics cleared");
+        } else {
+            ShellInput.current().checkFileAccess(args.get(1));
+            metrics.writeCsv(new File(args.get(1)));
+            getOutput().println("Statistics written to " + args.get(1));
+        }
+        return true;
+    }
+
+    private void printStats() {
+        final String format = "%-50s %8s %6s %10s %10s %10s %10s %10s %12s%n";
+        getOutput().printf(format, "command", "count", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "bytes/call");
+        for (final String name : metrics.getMetricNames()) {
+            final LatencyHistogram histogram = metrics.getHistogram(name);
+            getOutput().printf(Locale.ENGLISH, format, name, histogram.getCount(), metrics.getErrors(name),
+                    CommandMetrics.formatMillis(histogram.getMeanNanos()), CommandMetrics.formatMillis(histogram.getPercentileNanos(50)),
+                    CommandMetrics.formatMillis(histogram.getPercentileNanos(90)), CommandMetrics.formatMillis(histogram.getPercentileNanos(99)),
+                    CommandMetrics.formatMillis(histogram.getMaxNanos()), metrics.getAllocatedBytesPerCall(name));
+        }
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: stats [reset | csv <file>]");
+        getOutput().println("Print, clear or export to CSV the latency of the commands executed so far");
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return args.isEmpty() || args.size() == 1 && RESET.equals(args.get(0)) || args.size() == 2 && CSV.equals(args.get(0));
+    }
+
+    @Override
+    public List<Completer> getCompleters() {
+        return Arrays.asList((Completer) new StringsCompleter(RESET, CSV));
+    }
+
+}
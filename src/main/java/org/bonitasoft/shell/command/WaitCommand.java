@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.job.Job;
+import org.bonitasoft.shell.job.JobManager;
+
+/**
+ * Wait for the end of a job, or of all jobs, and print its result
+ * 
+ * @author Baptiste Mesta
+ */
+public class WaitCommand<T extends ShellContext> extends ShellCommand<T> {
+
+    private final JobManager jobManager;
+
+    public WaitCommand(final JobManager jobManager) {
+        this.jobManager = jobManager;
+    }
+
+    @Override
+    public String getName() {
+        return "wait";
+    }
+
+    @Override
+    public boolean execute(final List<String> args, final T context) throws Exception {
+        final List<Job> jobs = new ArrayList<Job>();
+        if (args.isEmpty()) {
+            jobs.addAll(jobManager.getJobs(context));
+        } else {
+            final Job job = jobManager.getJob(Integer.parseInt(args.get(0)), context);
+            if (job == null) {
+                getOutput().println("No job " + args.get(0));
+                return false;
+            }
+            jobs.add(job);
+        }
+        boolean success = true;
+        for (final Job job : jobs) {
+            success &= job.await() == Job.State.DONE;
+            getOutput().println(job);
+            getOutput().print(job.getOutput());
+            if (job.getError() != null) {
+                job.getError().printStackTrace(getOutput().getWriter());
+            }
+        }
+        return success;
+    }
+
+    @Override
+    public void printHelp() {
+        getOutput().println("Usage: wait [job id]");
+        getOutput().println("Wait for the end of the given job or of all jobs");
+    }
+
+    @Override
+    public boolean validate(final List<String> args) {
+        return args.isEmpty() || args.size() == 1 && args.get(0).matches("\\d+");
+    }
+
+}
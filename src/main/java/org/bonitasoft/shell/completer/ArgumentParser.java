@@ -7,9 +7,10 @@
 package org.bonitasoft.shell.completer;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
+import org.bonitasoft.shell.Tokenizer;
+
 /**
  * An utility class to parse arguments for the {@link CommandArgumentsCompleter}
  * 
@@ -29,31 +30,35 @@ public class ArgumentParser {
 
     private String previousArgument;
 
+    public ArgumentParser(final String string) {
+        this(string, new Tokenizer());
+    }
+
     /**
-     * 
+     * @param string
+     *            the line to parse
+     * @param tokenizer
+     *            tokenizer to use, its buffers are reused
      */
-    public ArgumentParser(final String string) {
+    public ArgumentParser(final String string, final Tokenizer tokenizer) {
         original = string;
-        final List<String> list = new ArrayList<String>(Arrays.asList(string.split("(\\s)+")));
-        if (" ".equals(original.substring(original.length() - 1, original.length()))) {
-            list.add("");
-        }
-        if (list.size() > 0) {
-            command = list.get(0);
-            if (list.size() > 1) {
-                arguments = list.subList(1, list.size());
-            } else {
-                arguments = new ArrayList<String>();
+        final int count = tokenizer.tokenize(string);
+        arguments = new ArrayList<String>(Math.max(count, 1));
+        if (count > 0) {
+            command = tokenizer.getToken(0);
+            for (int i = 1; i < count; i++) {
+                arguments.add(tokenizer.getToken(i));
             }
-        } else {
-            arguments = new ArrayList<String>();
+        }
+        if (tokenizer.hasTrailingWhitespace()) {
+            arguments.add("");
         }
         if (arguments.size() > 0) {
             lastArgument = arguments.get(arguments.size() - 1);
             if (arguments.size() > 1) {
                 previousArgument = arguments.get(arguments.size() - 2);
             }
-            offset = original.lastIndexOf(lastArgument);
+            offset = tokenizer.hasTrailingWhitespace() ? original.length() : tokenizer.getStart(count - 1);
         } else {
             offset = original.length();
         }
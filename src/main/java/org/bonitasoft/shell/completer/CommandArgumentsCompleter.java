@@ -8,20 +8,23 @@ package org.bonitasoft.shell.completer;
 
 import static jline.internal.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
 import jline.console.completer.Completer;
-import jline.console.completer.StringsCompleter;
 
 import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.Tokenizer;
 import org.bonitasoft.shell.command.ShellCommand;
+import org.bonitasoft.shell.history.PersistentHistory;
 
 /**
  * Allow to complete a set of given commands
  * Each command can have different completer
  * At the start of the line the completer complete with command name
  * Then it completes the line using command's completers
+ * Arguments that the command can't complete are completed with the lines of the history starting the same way
  * 
  * @author Baptiste Mesta
  */
@@ -29,25 +32,75 @@ public class CommandArgumentsCompleter<T extends ShellContext> implements Comple
 
     private final HashMap<String, ShellCommand<T>> commands;
 
-    private final StringsCompleter commandCompleter;
+    private final T context;
+
+    private final PrefixIndexCompleter commandCompleter;
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    private PersistentHistory history;
 
     /**
      * @param commands
      */
     public CommandArgumentsCompleter(final HashMap<String, ShellCommand<T>> commands) {
+        this(commands, null);
+    }
+
+    /**
+     * @param commands
+     * @param context
+     *            context of the session, used by completers fetching values from the APIs, see
+     *            {@link DynamicValueCompleter}
+     */
+    public CommandArgumentsCompleter(final HashMap<String, ShellCommand<T>> commands, final T context) {
         this.commands = commands;
-        commandCompleter = new StringsCompleter(commands.keySet());
+        this.context = context;
+        commandCompleter = new PrefixIndexCompleter(commands.keySet());
+    }
+
+    /**
+     * @param history
+     *            history used to complete arguments that the commands can't complete
+     */
+    public void setHistory(final PersistentHistory history) {
+        this.history = history;
     }
 
     @Override
     public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
+        final int position = completeCommand(buffer, cursor, candidates);
+        if (history == null || buffer == null || hasCompletions(candidates)) {
+            return position;
+        }
+        final List<CharSequence> fromHistory = new ArrayList<CharSequence>();
+        final int historyPosition = history.complete(buffer.substring(0, cursor), fromHistory);
+        if (historyPosition < 0) {
+            return position;
+        }
+        // replaces the help of the method
+        candidates.clear();
+        candidates.addAll(fromHistory);
+        return historyPosition;
+    }
+
+    private static boolean hasCompletions(final List<CharSequence> candidates) {
+        for (final CharSequence candidate : candidates) {
+            if (!candidate.toString().startsWith(ReflectMethodHelpCompleter.HELP_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int completeCommand(final String buffer, final int cursor, final List<CharSequence> candidates) {
         checkNotNull(candidates);
         final int pos = commandCompleter.complete(buffer, cursor, candidates);
         if (pos != -1) {
             return pos;
         }
         if (buffer != null) {
-            final ArgumentParser argumentParser = new ArgumentParser(buffer);
+            final ArgumentParser argumentParser = new ArgumentParser(buffer, tokenizer);
             final String command = argumentParser.getCommand();
             if (command != null) {
                 final int lastArgumentIndex = Math.max(argumentParser.getLastArgumentIndex(), 0);
@@ -60,7 +113,9 @@ public class CommandArgumentsCompleter<T extends ShellContext> implements Comple
                         final String lastArgument = argumentParser.getLastArgument();
                         String previousArgument = argumentParser.getPreviousArgument();
                         final int complete;
-                        if (lastArgument == null || lastArgument.isEmpty() && previousArgument != null) {
+                        if (completer instanceof DynamicValueCompleter) {
+                            complete = ((DynamicValueCompleter) completer).complete(context, lastArgument != null ? lastArgument : "", candidates);
+                        } else if (lastArgument == null || lastArgument.isEmpty() && previousArgument != null) {
                             complete = completer.complete(previousArgument, 0, candidates);
                         } else {
                             complete = completer.complete(lastArgument, lastArgument != null ? lastArgument.length() : 0, candidates);
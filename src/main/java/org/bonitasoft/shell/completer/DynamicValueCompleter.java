@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.completer;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jline.console.completer.Completer;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellThreads;
+
+/**
+ * Complete with values fetched from an API, e.g. ids of process definitions or user names
+ * Values are fetched on a background thread: the first TAB waits for them at most a few milliseconds, if they are not
+ * there yet nothing is completed and the next TAB gets them. Values are kept for a time to live for each context, so
+ * users only see the values of their own session. Expired values are still completed while they are fetched again.
+ * Values don't keep the context: they are dropped with it, and when it logs in or out, see
+ * {@link #invalidateContext(ShellContext)}. When the values can't be fetched nothing is completed and they are fetched
+ * again on the next completion, the first failure is printed on the error output
+ * Use one instance per API and type of value, and return it from {@link org.bonitasoft.shell.command.ShellCommand#getCompleters()}
+ * at the position of the argument. It only completes from a {@link CommandArgumentsCompleter} having a context
+ * 
+ * @author Baptiste Mesta
+ */
+public class DynamicValueCompleter implements Completer {
+
+    /**
+     * wait on TAB when values were never fetched
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 150;
+
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 60 * 1000;
+
+    private static final ExecutorService FETCHER = ShellThreads.newExecutor("shell-completion-");
+
+    private static final Set<DynamicValueCompleter> COMPLETERS = Collections.newSetFromMap(new WeakHashMap<DynamicValueCompleter, Boolean>());
+
+    /**
+     * Fetch the values of an API
+     */
+    public interface ValueSource {
+
+        /**
+         * @param api
+         *            the API given by the context of the session
+         * @return
+         *         the values, completed using their string representation
+         * @throws Exception
+         */
+        Collection<?> fetch(Object api) throws Exception;
+    }
+
+    private final String apiName;
+
+    private final String valueType;
+
+    private final ValueSource source;
+
+    private final long maxWaitMillis;
+
+    private final long timeToLiveMillis;
+
+    private final Map<ShellContext, Values> valuesByContext = Collections.synchronizedMap(new WeakHashMap<ShellContext, Values>());
+
+    private final AtomicBoolean failureLogged = new AtomicBoolean();
+
+    /**
+     * @param apiName
+     *            name of the API given to the source
+     * @param valueType
+     *            what the values are, e.g. processDefinitionId
+     * @param source
+     *            fetches the values
+     */
+    public DynamicValueCompleter(final String apiName, final String valueType, final ValueSource source) {
+        this(apiName, valueType, source, DEFAULT_MAX_WAIT_MILLIS, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * @param apiName
+     *            name of the API given to the source
+     * @param valueType
+     *            what the values are, e.g. processDefinitionId
+     * @param source
+     *            fetches the values
+     * @param maxWaitMillis
+     *            time TAB waits for values being fetched
+     * @param timeToLiveMillis
+     *            time during which values are used without being fetched again
+     */
+    public DynamicValueCompleter(final String apiName, final String valueType, final ValueSource source, final long maxWaitMillis,
+            final long timeToLiveMillis) {
+        this.apiName = apiName;
+        this.valueType = valueType;
+        this.source = source;
+        this.maxWaitMillis = maxWaitMillis;
+        this.timeToLiveMillis = timeToLiveMillis;
+        synchronized (COMPLETERS) {
+            COMPLETERS.add(this);
+        }
+    }
+
+    /**
+     * forget the values fetched for a context by all completers, must be called when it logs in or out, e.g. by
+     * {@link org.bonitasoft.shell.command.LogoutCommand}: values of a user must not be given to the next one
+     * 
+     * @param context
+     */
+    public static void invalidateContext(final ShellContext context) {
+        final List<DynamicValueCompleter> completers;
+        synchronized (COMPLETERS) {
+            completers = new ArrayList<DynamicValueCompleter>(COMPLETERS);
+        }
+        for (final DynamicValueCompleter completer : completers) {
+            completer.valuesByContext.remove(context);
+        }
+    }
+
+    public String getApiName() {
+        return apiName;
+    }
+
+    public String getValueType() {
+        return valueType;
+    }
+
+    /**
+     * values can't be fetched without a context
+     */
+    @Override
+    public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
+        return -1;
+    }
+
+    /**
+     * @param context
+     *            context of the session, nothing is completed if it is not logged in
+     * @param buffer
+     *            beginning of the value
+     * @param candidates
+     * @return
+     *         position of the completed value in the buffer, -1 if there is no candidate
+     */
+    public int complete(final ShellContext context, final String buffer, final List<CharSequence> candidates) {
+        if (context == null || !context.isLogged()) {
+            return -1;
+        }
+        Values values;
+        synchronized (valuesByContext) {
+            values = valuesByContext.get(context);
+            if (values == null) {
+                values = new Values();
+                valuesByContext.put(context, values);
+            }
+        }
+        final PrefixIndex index = values.get(context);
+        if (index == null) {
+            return -1;
+        }
+        return PrefixIndexCompleter.complete(index, buffer, candidates);
+    }
+
+    /**
+     * forget all fetched values, e.g. after values were created or deleted
+     */
+    public void invalidate() {
+        valuesByContext.clear();
+    }
+
+    /**
+     * Values fetched for a context
+     */
+    private final class Values {
+
+        private volatile PrefixIndex index;
+
+        private volatile long expiresAt;
+
+        private Future<PrefixIndex> pending;
+
+        PrefixIndex get(final ShellContext context) {
+            final PrefixIndex current = index;
+            if (current != null) {
+                if (System.currentTimeMillis() >= expiresAt) {
+                    // expired values are still better than waiting: refreshed for the next completion
+                    fetch(context);
+                }
+                return current;
+            }
+            try {
+                return fetch(context).get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException e) {
+                // still fetching: available on next completion
+                return null;
+            } catch (final ExecutionException e) {
+                return null;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /**
+         * @return
+         *         the values being fetched, a single fetch at a time
+         */
+        private synchronized Future<PrefixIndex> fetch(final ShellContext context) {
+            if (pending == null || pending.isDone()) {
+                // a waiting fetch must not keep the context of a closed session
+                final WeakReference<ShellContext> contextReference = new WeakReference<ShellContext>(context);
+                pending = FETCHER.submit(new Callable<PrefixIndex>() {
+
+                    @Override
+                    public PrefixIndex call() {
+                        final ShellContext fetchContext = contextReference.get();
+                        if (fetchContext == null) {
+                            return null;
+                        }
+                        final List<String> strings = new ArrayList<String>();
+                        try {
+                            for (final Object value : source.fetch(fetchContext.getApi(apiName))) {
+                                strings.add(String.valueOf(value));
+                            }
+                        } catch (final Exception e) {
+                            // not kept: fetched again on next completion
+                            if (failureLogged.compareAndSet(false, true)) {
+                                System.err.println("Unable to fetch " + valueType + " values to complete: " + e);
+                            }
+                            return null;
+                        }
+                        failureLogged.set(false);
+                        final PrefixIndex fetchedIndex = new PrefixIndex(strings);
+                        index = fetchedIndex;
+                        expiresAt = System.currentTimeMillis() + timeToLiveMillis;
+                        return fetchedIndex;
+                    }
+                });
+            }
+            return pending;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.completer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable sorted set of strings allowing to find all strings starting with a prefix using binary search
+ * 
+ * @author Baptiste Mesta
+ */
+public final class PrefixIndex {
+
+    private final String[] strings;
+
+    public PrefixIndex(final Collection<String> strings) {
+        this.strings = new TreeSet<String>(strings).toArray(new String[0]);
+    }
+
+    /**
+     * @param prefix
+     * @return
+     *         index of the first string starting with the prefix or of the place it would be inserted
+     */
+    public int from(final String prefix) {
+        final int index = Arrays.binarySearch(strings, prefix);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @param prefix
+     * @return
+     *         index after the last string starting with the prefix
+     */
+    public int to(final String prefix) {
+        int low = from(prefix);
+        int high = strings.length;
+        // all strings starting with the prefix are contiguous after from(prefix)
+        while (low < high) {
+            final int middle = low + high >>> 1;
+            if (strings[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * add to the candidates all strings starting with the prefix
+     * 
+     * @param prefix
+     *            the prefix, null to add all strings
+     * @param candidates
+     * @return
+     *         number of strings added
+     */
+    public int addMatches(final String prefix, final List<CharSequence> candidates) {
+        if (prefix == null || prefix.isEmpty()) {
+            candidates.addAll(Arrays.asList(strings));
+            return strings.length;
+        }
+        final int from = from(prefix);
+        final int to = to(prefix);
+        for (int i = from; i < to; i++) {
+            candidates.add(strings[i]);
+        }
+        return to - from;
+    }
+
+    public String get(final int index) {
+        return strings[index];
+    }
+
+    public int size() {
+        return strings.length;
+    }
+
+    public boolean contains(final String string) {
+        return Arrays.binarySearch(strings, string) >= 0;
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.completer;
+
+import static jline.internal.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+
+import jline.console.completer.Completer;
+
+/**
+ * Complete with a fixed set of strings, behaves like the jline StringsCompleter but the strings are indexed once
+ * 
+ * @author Baptiste Mesta
+ */
+public class PrefixIndexCompleter implements Completer {
+
+    private final PrefixIndex index;
+
+    public PrefixIndexCompleter(final Collection<String> strings) {
+        this(new PrefixIndex(strings));
+    }
+
+    public PrefixIndexCompleter(final PrefixIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
+        checkNotNull(candidates);
+        return complete(index, buffer, candidates);
+    }
+
+    static int complete(final PrefixIndex index, final String buffer, final List<CharSequence> candidates) {
+        index.addMatches(buffer, candidates);
+        if (candidates.size() == 1) {
+            candidates.set(0, candidates.get(0) + " ");
+        }
+        return candidates.isEmpty() ? -1 : 0;
+    }
+
+}
@@ -15,9 +15,9 @@ public class ReflectCandidateListCompletionHandler extends CandidateListCompleti
         String help = null;
         while (it.hasNext()) {
             String asString = "" + it.next();
-            if (asString.startsWith("**HELP")) {
+            if (asString.startsWith(ReflectMethodHelpCompleter.HELP_PREFIX)) {
                 it.remove();
-                help = asString.substring(6);
+                help = asString.substring(ReflectMethodHelpCompleter.HELP_PREFIX.length());
             }
         }
         if (candidates.isEmpty() && help != null) {
@@ -17,8 +17,7 @@ package org.bonitasoft.shell.completer;
 
 import java.util.List;
 
-import org.bonitasoft.shell.ShellContext;
-import org.bonitasoft.shell.command.ReflectCommand;
+import org.bonitasoft.shell.command.ApiCommand;
 
 /**
  * @author Baptiste Mesta
@@ -26,9 +25,9 @@ import org.bonitasoft.shell.command.ReflectCommand;
  */
 public class ReflectMethodCompleter extends ResolvingStringsCompleter {
 
-    private final ReflectCommand<? extends ShellContext> command;
+    private final ApiCommand command;
 
-    public ReflectMethodCompleter(final ReflectCommand<? extends ShellContext> command) {
+    public ReflectMethodCompleter(final ApiCommand command) {
         this.command = command;
     }
 
@@ -37,4 +36,10 @@ public class ReflectMethodCompleter extends ResolvingStringsCompleter {
         return command.getMethodNames();
     }
 
+    @Override
+    protected boolean isDynamic() {
+        // methods of an API don't change
+        return false;
+    }
+
 }
@@ -10,20 +10,24 @@ import java.util.List;
 
 import jline.console.completer.Completer;
 
-import org.bonitasoft.shell.ShellContext;
-import org.bonitasoft.shell.command.ReflectCommand;
+import org.bonitasoft.shell.command.ApiCommand;
 
 /**
  * @author Baptiste Mesta
  */
 public class ReflectMethodHelpCompleter implements Completer {
 
-    private final ReflectCommand<? extends ShellContext> reflectCommand;
+    /**
+     * marks the candidate giving the help of the method, it is printed instead of being completed
+     */
+    static final String HELP_PREFIX = "**HELP";
+
+    private final ApiCommand reflectCommand;
 
     /**
      * @param reflectCommand
      */
-    public ReflectMethodHelpCompleter(final ReflectCommand<? extends ShellContext> reflectCommand) {
+    public ReflectMethodHelpCompleter(final ApiCommand reflectCommand) {
         this.reflectCommand = reflectCommand;
     }
 
@@ -31,7 +35,7 @@ public class ReflectMethodHelpCompleter implements Completer {
     public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
         String methodHelp = reflectCommand.getMethodHelp(buffer);
         if (methodHelp != null) {
-            candidates.add("**HELP" + methodHelp);
+            candidates.add(HELP_PREFIX + methodHelp);
         }
         return cursor;
     }
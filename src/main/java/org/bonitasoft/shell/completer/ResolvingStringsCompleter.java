@@ -6,23 +6,66 @@
  */
 package org.bonitasoft.shell.completer;
 
+import static jline.internal.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import jline.console.completer.StringsCompleter;
 
 /**
+ * Complete with strings given by {@link #resolveStrings()}
+ * Strings are resolved on each completion and indexed again only when they changed. Completers whose strings never
+ * change return false from {@link #isDynamic()}: their strings are resolved on first completion only, unless
+ * {@link #refresh()} is called
+ * 
  * @author Baptiste Mesta
  */
 public abstract class ResolvingStringsCompleter extends StringsCompleter {
 
+    private PrefixIndex index;
+
+    private List<String> resolved;
+
     @Override
     public int complete(final String buffer, final int cursor, final List<CharSequence> candidates) {
-        getStrings().clear();
-        final List<String> resolveStrings = resolveStrings();
-        if (resolveStrings != null) {
-            getStrings().addAll(resolveStrings);
+        checkNotNull(candidates);
+        return PrefixIndexCompleter.complete(getIndex(), buffer, candidates);
+    }
+
+    private synchronized PrefixIndex getIndex() {
+        if (index == null || isDynamic()) {
+            List<String> resolveStrings = resolveStrings();
+            if (resolveStrings == null) {
+                resolveStrings = Collections.emptyList();
+            }
+            // only re-index when the strings changed
+            if (index == null || !resolveStrings.equals(resolved)) {
+                resolved = new ArrayList<String>(resolveStrings);
+                index = new PrefixIndex(resolved);
+                getStrings().clear();
+                getStrings().addAll(resolved);
+            }
         }
-        return super.complete(buffer, cursor, candidates);
+        return index;
+    }
+
+    /**
+     * strings will be resolved again on next completion
+     */
+    public synchronized void refresh() {
+        index = null;
+        resolved = null;
+        getStrings().clear();
+    }
+
+    /**
+     * @return
+     *         true if strings must be resolved again on each completion, the default
+     */
+    protected boolean isDynamic() {
+        return true;
     }
 
     /**
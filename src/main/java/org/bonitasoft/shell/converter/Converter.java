@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+/**
+ * Convert a string argument typed in the shell to the type of a parameter of an API method
+ * 
+ * @author Baptiste Mesta
+ */
+public interface Converter<V> {
+
+    /**
+     * @param value
+     *            the argument as typed in the shell, never null
+     * @return
+     *         the converted value
+     * @throws Exception
+     *             if the value can't be converted
+     */
+    V convert(String value) throws Exception;
+
+}
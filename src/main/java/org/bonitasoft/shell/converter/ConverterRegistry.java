@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keep the {@link Converter} to use for each parameter type
+ * Converters are looked up by class identity, converters for enums, JSON literals and search options
+ * are created the first time the type is requested and then kept
+ * 
+ * @author Baptiste Mesta
+ */
+public class ConverterRegistry {
+
+    private static final ConverterRegistry DEFAULT = new ConverterRegistry();
+
+    private final Map<Class<?>, Converter<?>> converters = new IdentityHashMap<Class<?>, Converter<?>>();
+
+    public ConverterRegistry() {
+        final Converter<Boolean> booleanConverter = new Converter<Boolean>() {
+
+            @Override
+            public Boolean convert(final String value) {
+                return Boolean.parseBoolean(value);
+            }
+        };
+        final Converter<Long> longConverter = new Converter<Long>() {
+
+            @Override
+            public Long convert(final String value) {
+                return Long.parseLong(value);
+            }
+        };
+        final Converter<Double> doubleConverter = new Converter<Double>() {
+
+            @Override
+            public Double convert(final String value) {
+                return Double.parseDouble(value);
+            }
+        };
+        final Converter<Float> floatConverter = new Converter<Float>() {
+
+            @Override
+            public Float convert(final String value) {
+                return Float.parseFloat(value);
+            }
+        };
+        final Converter<Integer> integerConverter = new Converter<Integer>() {
+
+            @Override
+            public Integer convert(final String value) {
+                return Integer.parseInt(value);
+            }
+        };
+        register(Boolean.class, booleanConverter);
+        register(boolean.class, booleanConverter);
+        register(Long.class, longConverter);
+        register(long.class, longConverter);
+        register(Double.class, doubleConverter);
+        register(double.class, doubleConverter);
+        register(Float.class, floatConverter);
+        register(float.class, floatConverter);
+        register(Integer.class, integerConverter);
+        register(int.class, integerConverter);
+        register(String.class, new StringConverter());
+        register(Date.class, new DateConverter());
+    }
+
+    /**
+     * @return
+     *         the registry shared by commands that were not given one
+     */
+    public static ConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * register or replace the converter used for the given type
+     * 
+     * @param type
+     * @param converter
+     */
+    public synchronized <V> void register(final Class<V> type, final Converter<? extends V> converter) {
+        converters.put(type, converter);
+    }
+
+    /**
+     * @param type
+     * @return
+     *         the converter for this type or null if string arguments can't be converted to it
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public synchronized Converter<?> getConverter(final Class<?> type) {
+        Converter<?> converter = converters.get(type);
+        if (converter == null && !converters.containsKey(type)) {
+            if (type.isEnum()) {
+                converter = new EnumConverter(type);
+            } else if (type == Map.class || type == List.class || type == Collection.class) {
+                converter = new JsonConverter(type);
+            } else if (SearchOptionsConverter.SEARCH_OPTIONS_CLASS.equals(type.getName())) {
+                try {
+                    converter = new SearchOptionsConverter(type);
+                } catch (final ReflectiveOperationException e) {
+                    converter = null;
+                }
+            }
+            // also remember types without converter so that they are not resolved again
+            converters.put(type, converter);
+        }
+        return converter;
+    }
+
+    /**
+     * @param type
+     * @return
+     *         true if string arguments can be converted to the given type
+     */
+    public boolean canConvert(final Class<?> type) {
+        return getConverter(type) != null;
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Convert a date given as milliseconds since epoch, as yyyy-MM-dd or as yyyy-MM-dd'T'HH:mm:ss in the default time zone
+ * Dates that do not exist, e.g. 2014-02-30, and trailing characters are rejected
+ * 
+ * @author Baptiste Mesta
+ */
+public class DateConverter implements Converter<Date> {
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+    // SimpleDateFormat is not thread safe: one per thread
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return strict(new SimpleDateFormat(DATE_PATTERN));
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_TIME_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return strict(new SimpleDateFormat(DATE_TIME_PATTERN));
+        }
+    };
+
+    @Override
+    public Date convert(final String value) throws ParseException {
+        if (isDigits(value)) {
+            return new Date(Long.parseLong(value));
+        }
+        return parse(value.indexOf('T') > 0 ? DATE_TIME_FORMAT.get() : DATE_FORMAT.get(), value);
+    }
+
+    private static SimpleDateFormat strict(final SimpleDateFormat format) {
+        format.setLenient(false);
+        return format;
+    }
+
+    private static Date parse(final SimpleDateFormat format, final String value) throws ParseException {
+        final ParsePosition position = new ParsePosition(0);
+        final Date date = format.parse(value, position);
+        if (date == null || position.getIndex() != value.length()) {
+            final int errorIndex = date == null ? position.getErrorIndex() : position.getIndex();
+            throw new ParseException("Unparseable date, expected " + format.toPattern() + ": " + value, errorIndex);
+        }
+        return date;
+    }
+
+    private static boolean isDigits(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+
+}
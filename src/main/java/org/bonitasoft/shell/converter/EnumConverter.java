@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Convert the name of a constant of an enum, case insensitive
+ * 
+ * @author Baptiste Mesta
+ */
+public class EnumConverter<E extends Enum<E>> implements Converter<E> {
+
+    private final Map<String, E> constants = new HashMap<String, E>();
+
+    public EnumConverter(final Class<E> enumClass) {
+        for (final E constant : enumClass.getEnumConstants()) {
+            constants.put(constant.name().toUpperCase(Locale.ENGLISH), constant);
+        }
+    }
+
+    @Override
+    public E convert(final String value) {
+        final E constant = constants.get(value.toUpperCase(Locale.ENGLISH));
+        if (constant == null) {
+            throw new IllegalArgumentException(value + " is not one of " + constants.keySet());
+        }
+        return constant;
+    }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+/**
+ * Convert a JSON literal to a {@link java.util.Map} or a {@link java.util.List}
+ * e.g. {"name":"john"} or [1,2,3]
+ * 
+ * @author Baptiste Mesta
+ */
+public class JsonConverter<V> implements Converter<V> {
+
+    private final Class<V> type;
+
+    public JsonConverter(final Class<V> type) {
+        this.type = type;
+    }
+
+    @Override
+    public V convert(final String value) {
+        final Object parsed = new JsonParser(value).parse();
+        if (!type.isInstance(parsed)) {
+            throw new IllegalArgumentException(value + " is not a JSON literal of type " + type.getSimpleName());
+        }
+        return type.cast(parsed);
+    }
+
+}
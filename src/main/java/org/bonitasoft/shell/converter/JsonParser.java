@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser used for arguments typed in the shell
+ * Objects are parsed to {@link LinkedHashMap}, arrays to {@link ArrayList}, integral numbers to Long
+ * 
+ * @author Baptiste Mesta
+ */
+class JsonParser {
+
+    private final String text;
+
+    private int position;
+
+    JsonParser(final String text) {
+        this.text = text;
+    }
+
+    Object parse() {
+        final Object value = parseValue();
+        skipWhitespaces();
+        if (position != text.length()) {
+            throw error("unexpected character");
+        }
+        return value;
+    }
+
+    private Object parseValue() {
+        skipWhitespaces();
+        if (position >= text.length()) {
+            throw error("unexpected end");
+        }
+        final char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return parseObject();
+            case '[':
+                return parseArray();
+            case '"':
+                return parseString();
+            case 't':
+                return parseLiteral("true", Boolean.TRUE);
+            case 'f':
+                return parseLiteral("false", Boolean.FALSE);
+            case 'n':
+                return parseLiteral("null", null);
+            default:
+                return parseNumber();
+        }
+    }
+
+    private Map<String, Object> parseObject() {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        position++;
+        skipWhitespaces();
+        if (peek() == '}') {
+            position++;
+            return map;
+        }
+        while (true) {
+            skipWhitespaces();
+            if (peek() != '"') {
+                throw error("expected a key");
+            }
+            final String key = parseString();
+            skipWhitespaces();
+            expect(':');
+            map.put(key, parseValue());
+            skipWhitespaces();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> parseArray() {
+        final List<Object> list = new ArrayList<Object>();
+        position++;
+        skipWhitespaces();
+        if (peek() == ']') {
+            position++;
+            return list;
+        }
+        while (true) {
+            list.add(parseValue());
+            skipWhitespaces();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String parseString() {
+        position++;
+        final StringBuilder builder = new StringBuilder();
+        while (position < text.length()) {
+            final char c = text.charAt(position++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c == '\\') {
+                if (position >= text.length()) {
+                    break;
+                }
+                final char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("invalid unicode escape");
+                        }
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        builder.append(escaped);
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Object parseLiteral(final String literal, final Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("unexpected character");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private Number parseNumber() {
+        final int start = position;
+        boolean decimal = false;
+        while (position < text.length()) {
+            final char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if (!(c >= '0' && c <= '9' || c == '-' || c == '+')) {
+                break;
+            }
+            position++;
+        }
+        if (start == position) {
+            throw error("unexpected character");
+        }
+        final String number = text.substring(start, position);
+        try {
+            return decimal ? (Number) Double.valueOf(number) : (Number) Long.valueOf(number);
+        } catch (final NumberFormatException e) {
+            throw error("invalid number " + number);
+        }
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw error("unexpected end");
+        }
+        return text.charAt(position);
+    }
+
+    private void expect(final char expected) {
+        if (peek() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    private void skipWhitespaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException("Invalid JSON, " + message + " at " + position + ": " + text);
+    }
+
+}
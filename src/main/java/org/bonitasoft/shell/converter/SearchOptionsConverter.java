@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Convert to Bonita search options using the SearchOptionsBuilder of the engine API
+ * The value is &lt;startIndex&gt;,&lt;maxResults&gt; optionally followed by filters ,&lt;field&gt;=&lt;value&gt;
+ * e.g. 0,100,name=myProcess
+ * The builder is accessed by reflection so that the shell does not depend on the engine API
+ * 
+ * @author Baptiste Mesta
+ */
+public class SearchOptionsConverter implements Converter<Object> {
+
+    public static final String SEARCH_OPTIONS_CLASS = "org.bonitasoft.engine.search.SearchOptions";
+
+    private static final String SEARCH_OPTIONS_BUILDER_CLASS = "org.bonitasoft.engine.search.SearchOptionsBuilder";
+
+    private final Constructor<?> builderConstructor;
+
+    private final Method filterMethod;
+
+    private final Method doneMethod;
+
+    /**
+     * @param searchOptionsClass
+     *            the SearchOptions class, its class loader is used to find the builder
+     * @throws ReflectiveOperationException
+     *             if the builder is not available
+     */
+    public SearchOptionsConverter(final Class<?> searchOptionsClass) throws ReflectiveOperationException {
+        final Class<?> builderClass = Class.forName(SEARCH_OPTIONS_BUILDER_CLASS, true, searchOptionsClass.getClassLoader());
+        builderConstructor = builderClass.getConstructor(int.class, int.class);
+        filterMethod = builderClass.getMethod("filter", String.class, Serializable.class);
+        doneMethod = builderClass.getMethod("done");
+    }
+
+    @Override
+    public Object convert(final String value) throws ReflectiveOperationException {
+        final String[] parts = value.split(",");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("search options must be <startIndex>,<maxResults>[,<field>=<value>...]: " + value);
+        }
+        final Object builder = builderConstructor.newInstance(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        for (int i = 2; i < parts.length; i++) {
+            final int equals = parts[i].indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("filter must be <field>=<value>: " + parts[i]);
+            }
+            filterMethod.invoke(builder, parts[i].substring(0, equals).trim(), parts[i].substring(equals + 1).trim());
+        }
+        return doneMethod.invoke(builder);
+    }
+
+}
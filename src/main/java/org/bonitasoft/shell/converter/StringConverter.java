@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+/**
+ * Keep the argument as is, surrounding double quotes are removed
+ * 
+ * @author Baptiste Mesta
+ */
+public class StringConverter implements Converter<String> {
+
+    @Override
+    public String convert(final String value) {
+        final int length = value.length();
+        if (length >= 2 && value.charAt(0) == '"' && value.charAt(length - 1) == '"') {
+            return value.substring(1, length - 1);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.groovy;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bonitasoft.shell.PrivateFiles;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.tools.GroovyClass;
+
+/**
+ * Compile groovy scripts once and keep the compiled classes, keyed by the SHA-1 of their content
+ * Classes are kept in memory and, if a directory is given, written to disk so that next JVMs don't compile them again.
+ * The directory is made private to its owner, the scripts are kept in memory only if it can't be. Each script is
+ * stored in one file with the SHA-256 of its content: a file that does not match is compiled again. Files are written
+ * to a temporary file then renamed, so that concurrent JVMs never read a partial file
+ * 
+ * @author Baptiste Mesta
+ */
+public class GroovyScriptCache {
+
+    private static final String CLASS_PREFIX = "Script_";
+
+    private static final String EXTENSION = ".classes";
+
+    private static final int MAGIC = 0x47534331;
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private final ConcurrentMap<String, Class<? extends Script>> classes = new ConcurrentHashMap<String, Class<? extends Script>>();
+
+    private final GroovyClassLoader groovyClassLoader;
+
+    private final File directory;
+
+    /**
+     * @param parent
+     *            class loader giving access to the APIs used by scripts
+     * @param directory
+     *            directory where compiled scripts are stored, null to keep them in memory only
+     */
+    public GroovyScriptCache(final ClassLoader parent, final File directory) {
+        groovyClassLoader = new GroovyClassLoader(parent);
+        this.directory = directory != null && isPrivate(directory) ? directory : null;
+    }
+
+    private static boolean isPrivate(final File directory) {
+        try {
+            PrivateFiles.createDirectory(directory);
+            return true;
+        } catch (final IOException e) {
+            System.err.println("Compiled scripts kept in memory only, " + directory + " can't be made private: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param scriptText
+     *            content of the script
+     * @return
+     *         the compiled script class, compiled only if not already in memory or on disk
+     */
+    public Class<? extends Script> getScriptClass(final String scriptText) {
+        final String className = CLASS_PREFIX + hash(scriptText);
+        Class<? extends Script> scriptClass = classes.get(className);
+        if (scriptClass == null) {
+            scriptClass = directory != null ? loadOrCompileToDirectory(className, scriptText) : compileInMemory(className, scriptText);
+            final Class<? extends Script> existing = classes.putIfAbsent(className, scriptClass);
+            if (existing != null) {
+                scriptClass = existing;
+            }
+        }
+        return scriptClass;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<? extends Script> compileInMemory(final String className, final String scriptText) {
+        return groovyClassLoader.parseClass(scriptText, className + ".groovy");
+    }
+
+    private synchronized Class<? extends Script> loadOrCompileToDirectory(final String className, final String scriptText) {
+        final File file = new File(directory, className + EXTENSION);
+        Map<String, byte[]> bytecode = read(file);
+        if (bytecode == null) {
+            bytecode = compile(className, scriptText);
+            write(file, bytecode);
+        }
+        try {
+            return new BytecodeClassLoader(groovyClassLoader, bytecode).loadClass(className).asSubclass(Script.class);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException("compiled script not found in " + file, e);
+        }
+    }
+
+    /**
+     * @return
+     *         bytecode of the script and of its closures by class name
+     */
+    private Map<String, byte[]> compile(final String className, final String scriptText) {
+        final CompilationUnit compilationUnit = new CompilationUnit(new CompilerConfiguration(), null, groovyClassLoader);
+        compilationUnit.addSource(className + ".groovy", scriptText);
+        compilationUnit.compile(Phases.CLASS_GENERATION);
+        final Map<String, byte[]> bytecode = new HashMap<String, byte[]>();
+        for (final Object compiled : (List<?>) compilationUnit.getClasses()) {
+            final GroovyClass groovyClass = (GroovyClass) compiled;
+            bytecode.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+        return bytecode;
+    }
+
+    /**
+     * @return
+     *         the bytecode stored in the file, null if there is no file or if its content does not match its digest
+     */
+    private static Map<String, byte[]> read(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            final byte[] content = Files.readAllBytes(file.toPath());
+            if (content.length < DIGEST_LENGTH) {
+                return null;
+            }
+            final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(content, 0, content.length - DIGEST_LENGTH);
+            if (!MessageDigest.isEqual(sha256.digest(), Arrays.copyOfRange(content, content.length - DIGEST_LENGTH, content.length))) {
+                return null;
+            }
+            final DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - DIGEST_LENGTH));
+            if (input.readInt() != MAGIC) {
+                return null;
+            }
+            final int count = input.readInt();
+            final Map<String, byte[]> bytecode = new HashMap<String, byte[]>();
+            for (int i = 0; i < count; i++) {
+                final String name = input.readUTF();
+                final byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                bytecode.put(name, bytes);
+            }
+            return bytecode;
+        } catch (final IOException e) {
+            return null;
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * write the file atomically, failures are ignored: the script is compiled again next time
+     */
+    private static void write(final File file, final Map<String, byte[]> bytecode) {
+        File temporary = null;
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(MAGIC);
+            output.writeInt(bytecode.size());
+            for (final Map.Entry<String, byte[]> entry : bytecode.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue().length);
+                output.write(entry.getValue());
+            }
+            output.flush();
+            final byte[] content = bytes.toByteArray();
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            temporary = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            PrivateFiles.createFile(temporary);
+            Files.write(temporary.toPath(), content);
+            Files.write(temporary.toPath(), digest, StandardOpenOption.APPEND);
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporary = null;
+        } catch (final IOException e) {
+            System.err.println("Compiled script not saved: " + e.getMessage());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (temporary != null) {
+                temporary.delete();
+            }
+        }
+    }
+
+    /**
+     * @return
+     *         number of scripts compiled or loaded so far
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    private static String hash(final String scriptText) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(scriptText.getBytes("UTF-8"));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * define the classes of a script from their bytecode
+     */
+    private static class BytecodeClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> bytecode;
+
+        BytecodeClassLoader(final ClassLoader parent, final Map<String, byte[]> bytecode) {
+            super(parent);
+            this.bytecode = bytecode;
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            final byte[] bytes = bytecode.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+}
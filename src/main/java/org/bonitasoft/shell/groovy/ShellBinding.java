@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.groovy;
+
+import groovy.lang.Binding;
+import groovy.lang.MissingPropertyException;
+
+import java.util.Set;
+
+import org.bonitasoft.shell.ShellContext;
+
+/**
+ * Binding of scripts giving access to the context and to the APIs of the shell
+ * APIs are retrieved from the context only when a script uses them
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellBinding extends Binding {
+
+    private final ShellContext context;
+
+    private final Set<String> apiNames;
+
+    /**
+     * @param context
+     *            context bound as 'context'
+     * @param apiNames
+     *            names of the APIs that can be used as variables in the script
+     */
+    public ShellBinding(final ShellContext context, final Set<String> apiNames) {
+        this.context = context;
+        this.apiNames = apiNames;
+        setVariable("context", context);
+    }
+
+    @Override
+    public Object getVariable(final String name) {
+        try {
+            return super.getVariable(name);
+        } catch (final MissingPropertyException e) {
+            if (!apiNames.contains(name)) {
+                throw e;
+            }
+            try {
+                final Object api = context.getApi(name);
+                setVariable(name, api);
+                return api;
+            } catch (final Exception apiException) {
+                throw new IllegalStateException("unable to get api " + name, apiException);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasVariable(final String name) {
+        return super.hasVariable(name) || apiNames.contains(name);
+    }
+
+}
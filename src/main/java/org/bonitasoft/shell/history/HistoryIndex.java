@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import java.util.Arrays;
+
+/**
+ * Index of the lines of a history by the sequences of 3 characters (trigrams) they contain
+ * A search only verifies the lines containing the least frequent trigram of the searched text instead of all lines.
+ * Trigrams are hashed: lines sharing a hash but not the trigram are eliminated when they are verified
+ * 
+ * @author Baptiste Mesta
+ */
+class HistoryIndex {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int GRAM = 3;
+
+    private int[] keys = new int[1024];
+
+    private Postings[] postings = new Postings[1024];
+
+    private int trigramCount;
+
+    /**
+     * Gives the text of the indexed lines
+     */
+    interface Lines {
+
+        String get(int index);
+
+        int size();
+    }
+
+    private final Lines lines;
+
+    HistoryIndex(final Lines lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * index a line, lines must be added in the order of their index
+     * 
+     * @param index
+     * @param line
+     */
+    void add(final int index, final String line) {
+        for (int i = 0; i + GRAM <= line.length(); i++) {
+            getOrCreate(key(line, i)).add(index);
+        }
+    }
+
+    void clear() {
+        keys = new int[1024];
+        postings = new Postings[1024];
+        trigramCount = 0;
+    }
+
+    /**
+     * open addressing on primitive keys: indexing does not box a key per trigram of each line
+     */
+    private Postings get(final int key) {
+        final int mask = keys.length - 1;
+        for (int slot = mix(key) & mask;; slot = slot + 1 & mask) {
+            final Postings list = postings[slot];
+            if (list == null || keys[slot] == key) {
+                return list;
+            }
+        }
+    }
+
+    private Postings getOrCreate(final int key) {
+        final int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (postings[slot] != null) {
+            if (keys[slot] == key) {
+                return postings[slot];
+            }
+            slot = slot + 1 & mask;
+        }
+        final Postings list = new Postings();
+        keys[slot] = key;
+        postings[slot] = list;
+        if (++trigramCount * 2 > keys.length) {
+            grow();
+        }
+        return list;
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys;
+        final Postings[] oldPostings = postings;
+        keys = new int[oldKeys.length * 2];
+        postings = new Postings[oldKeys.length * 2];
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldPostings[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (postings[slot] != null) {
+                    slot = slot + 1 & mask;
+                }
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+            }
+        }
+    }
+
+    private static int mix(final int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * remove the last indexed line
+     * 
+     * @param index
+     *            index of the last line
+     * @param line
+     */
+    void removeLast(final int index, final String line) {
+        for (int i = 0; i + GRAM <= line.length(); i++) {
+            final Postings list = get(key(line, i));
+            if (list != null) {
+                list.removeLast(index);
+            }
+        }
+    }
+
+    private static int key(final CharSequence text, final int start) {
+        return text.charAt(start) << 20 ^ text.charAt(start + 1) << 10 ^ text.charAt(start + 2);
+    }
+
+    /**
+     * @param text
+     *            text to find
+     * @param startIndex
+     *            the search starts with the line before this index
+     * @param startsWith
+     *            true if lines must start with the text, otherwise they must contain it
+     * @return
+     *         index of the closest line before startIndex matching the text, {@link #NOT_FOUND} if none
+     */
+    int searchBackwards(final String text, final int startIndex, final boolean startsWith) {
+        final int from = Math.min(startIndex, lines.size()) - 1;
+        final Postings candidates = getRarest(text);
+        if (candidates == null) {
+            for (int i = from; i >= 0; i--) {
+                if (matches(lines.get(i), text, startsWith)) {
+                    return i;
+                }
+            }
+            return NOT_FOUND;
+        }
+        for (int p = candidates.before(from + 1); p >= 0; p--) {
+            final int index = candidates.get(p);
+            if (matches(lines.get(index), text, startsWith)) {
+                return index;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param text
+     *            text to find
+     * @param startIndex
+     *            the search starts with the line at this index
+     * @param startsWith
+     *            true if lines must start with the text, otherwise they must contain it
+     * @return
+     *         index of the closest line from startIndex matching the text, {@link #NOT_FOUND} if none
+     */
+    int searchForwards(final String text, final int startIndex, final boolean startsWith) {
+        final int from = Math.max(startIndex, 0);
+        final Postings candidates = getRarest(text);
+        if (candidates == null) {
+            for (int i = from; i < lines.size(); i++) {
+                if (matches(lines.get(i), text, startsWith)) {
+                    return i;
+                }
+            }
+            return NOT_FOUND;
+        }
+        for (int p = candidates.before(from) + 1; p < candidates.size; p++) {
+            final int index = candidates.get(p);
+            if (matches(lines.get(index), text, startsWith)) {
+                return index;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static boolean matches(final String line, final String text, final boolean startsWith) {
+        return startsWith ? line.startsWith(text) : line.contains(text);
+    }
+
+    /**
+     * @return
+     *         lines containing the least frequent trigram of the text, null if the text is too short to use the index
+     */
+    private Postings getRarest(final String text) {
+        if (text.length() < GRAM) {
+            return null;
+        }
+        Postings rarest = null;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            final Postings list = get(key(text, i));
+            if (list == null) {
+                return Postings.EMPTY;
+            }
+            if (rarest == null || list.size < rarest.size) {
+                rarest = list;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * Sorted indexes of the lines containing a trigram
+     */
+    private static final class Postings {
+
+        static final Postings EMPTY = new Postings();
+
+        private int[] indexes = new int[2];
+
+        private int size;
+
+        void add(final int index) {
+            if (size > 0 && indexes[size - 1] == index) {
+                // trigram found several times in the same line
+                return;
+            }
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+
+        void removeLast(final int index) {
+            if (size > 0 && indexes[size - 1] == index) {
+                size--;
+            }
+        }
+
+        int get(final int position) {
+            return indexes[position];
+        }
+
+        /**
+         * @return
+         *         position of the last index lower than the given one, -1 if none
+         */
+        int before(final int index) {
+            final int position = Arrays.binarySearch(indexes, 0, size, index);
+            return position >= 0 ? position - 1 : -position - 2;
+        }
+    }
+
+}
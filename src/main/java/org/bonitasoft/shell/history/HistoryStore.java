@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bonitasoft.shell.PrivateFiles;
+
+/**
+ * Append-only log of lines in a memory-mapped file
+ * Records are the length of the line followed by its UTF-8 bytes, the length is written last so that a line
+ * interrupted by a crash is ignored when the file is read again. Lines are decoded from the mapped file when they
+ * are read: only their offsets are kept in the heap.
+ * The file is readable by its owner only and locked while a shell uses it: another shell reads its lines once and
+ * keeps its own lines in memory only. Lines can be read by another thread while they are appended
+ * 
+ * @author Baptiste Mesta
+ */
+class HistoryStore implements Closeable {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x53484831;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final File file;
+
+    private RandomAccessFile randomAccessFile;
+
+    private FileChannel channel;
+
+    private FileLock lock;
+
+    private MappedByteBuffer buffer;
+
+    private int[] offsets = new int[1024];
+
+    private int size;
+
+    private int writePosition;
+
+    // lines of a file used by another shell, null when this store writes the file
+    private List<String> readOnlyLines;
+
+    /**
+     * @param file
+     *            the file, created if it does not exist
+     * @throws IOException
+     *             if the file is not a history
+     */
+    HistoryStore(final File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    private void open() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        PrivateFiles.createFile(file);
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        try {
+            lock = channel.tryLock();
+        } catch (final OverlappingFileLockException e) {
+            lock = null;
+        }
+        final long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            close();
+            throw new IOException("History " + file + " is too large");
+        }
+        if (lock == null) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } else {
+            map(Math.max((int) length, INITIAL_CAPACITY));
+        }
+        if (length == 0) {
+            if (lock != null) {
+                buffer.putInt(0, MAGIC);
+            }
+        } else if (buffer.getInt(0) != MAGIC) {
+            close();
+            throw new IOException(file + " is not a history file");
+        }
+        size = 0;
+        int position = HEADER_SIZE;
+        // a record cut by the end of the file is ignored, the mapping may have zeroes after it
+        while (position + 4 <= length) {
+            final int lineLength = buffer.getInt(position);
+            if (lineLength <= 0 || position + 4L + lineLength > length) {
+                break;
+            }
+            addOffset(position);
+            position += 4 + lineLength;
+        }
+        writePosition = position;
+        if (lock == null) {
+            final List<String> lines = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                lines.add(get(i));
+            }
+            close();
+            readOnlyLines = lines;
+        }
+    }
+
+    /**
+     * @return
+     *         true if the file is used by another shell, lines appended are then kept in memory only
+     */
+    synchronized boolean isReadOnly() {
+        return readOnlyLines != null;
+    }
+
+    private void map(final int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void addOffset(final int offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = offset;
+    }
+
+    synchronized int size() {
+        if (readOnlyLines != null) {
+            return readOnlyLines.size();
+        }
+        return size;
+    }
+
+    /**
+     * @param line
+     * @return
+     *         index of the line
+     * @throws IOException
+     */
+    synchronized int append(final String line) throws IOException {
+        if (readOnlyLines != null) {
+            readOnlyLines.add(line);
+            return readOnlyLines.size() - 1;
+        }
+        final byte[] bytes = line.getBytes(UTF_8);
+        // the record and the zero length marking the end of the log
+        final long needed = (long) writePosition + 4 + bytes.length + 4;
+        if (needed > buffer.capacity()) {
+            if (needed > Integer.MAX_VALUE) {
+                throw new IOException("History " + file + " is full");
+            }
+            map((int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * buffer.capacity())));
+        }
+        final ByteBuffer record = buffer.duplicate();
+        record.position(writePosition + 4);
+        record.put(bytes);
+        record.putInt(0);
+        buffer.putInt(writePosition, bytes.length);
+        addOffset(writePosition);
+        writePosition += 4 + bytes.length;
+        return size - 1;
+    }
+
+    synchronized String get(final int index) {
+        if (readOnlyLines != null) {
+            return readOnlyLines.get(index);
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("line " + index + " of " + size);
+        }
+        final int offset = offsets[index];
+        final byte[] bytes = new byte[buffer.getInt(offset)];
+        final ByteBuffer record = buffer.duplicate();
+        record.position(offset + 4);
+        record.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * remove the last line
+     */
+    synchronized void removeLast() {
+        if (readOnlyLines != null) {
+            if (!readOnlyLines.isEmpty()) {
+                readOnlyLines.remove(readOnlyLines.size() - 1);
+            }
+            return;
+        }
+        if (size == 0) {
+            return;
+        }
+        writePosition = offsets[--size];
+        buffer.putInt(writePosition, 0);
+    }
+
+    synchronized void clear() {
+        if (readOnlyLines != null) {
+            readOnlyLines.clear();
+            return;
+        }
+        size = 0;
+        writePosition = HEADER_SIZE;
+        buffer.putInt(writePosition, 0);
+    }
+
+    /**
+     * replace the content of the file by the given lines
+     * 
+     * @param lines
+     * @throws IOException
+     */
+    synchronized void rewrite(final List<String> lines) throws IOException {
+        if (readOnlyLines != null) {
+            readOnlyLines = new ArrayList<String>(lines);
+            return;
+        }
+        final File rewritten = new File(file.getPath() + ".tmp");
+        PrivateFiles.createFile(rewritten);
+        final DataOutputStream output = new DataOutputStream(new FileOutputStream(rewritten));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(0);
+            for (final String line : lines) {
+                final byte[] bytes = line.getBytes(UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+            output.writeInt(0);
+        } finally {
+            output.close();
+        }
+        close();
+        Files.move(rewritten.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    synchronized void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        // closing the file releases the lock
+        randomAccessFile.close();
+    }
+
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jline.console.history.History;
+
+/**
+ * History of the console kept in a file between runs, see {@link HistoryStore}
+ * Lines are indexed by trigrams so that reverse search (Ctrl-R) and completion from history stay fast with hundreds
+ * of thousands of lines, lines found in the file are indexed in background when it is opened. When the file holds twice the maximum number of lines, it is compacted: only the most recent
+ * occurrence of the last lines is kept.
+ * Not thread safe, like the console using it
+ * 
+ * @author Baptiste Mesta
+ */
+public class PersistentHistory implements History, Flushable, Closeable {
+
+    private static final int MAX_COMPLETIONS = 50;
+
+    private final HistoryStore store;
+
+    private final HistoryIndex index;
+
+    private final int maxSize;
+
+    private int cursor;
+
+    private int indexed;
+
+    private Thread indexer;
+
+    private final Filter filter;
+
+    /**
+     * Select the lines kept in the history, e.g. to leave out the ones holding a password
+     */
+    public interface Filter {
+
+        boolean isKept(String line);
+    }
+
+    /**
+     * @param file
+     *            file where lines are kept, created if it does not exist
+     * @param maxSize
+     *            number of lines kept when the history is compacted
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public PersistentHistory(final File file, final int maxSize) throws IOException {
+        this(file, maxSize, null);
+    }
+
+    /**
+     * @param file
+     *            file where lines are kept, created if it does not exist
+     * @param maxSize
+     *            number of lines kept when the history is compacted
+     * @param filter
+     *            lines it rejects are neither added nor kept when the history is compacted, including when it is
+     *            opened, null to keep all lines
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public PersistentHistory(final File file, final int maxSize, final Filter filter) throws IOException {
+        this.maxSize = maxSize;
+        this.filter = filter;
+        store = new HistoryStore(file);
+        index = new HistoryIndex(new HistoryIndex.Lines() {
+
+            @Override
+            public String get(final int i) {
+                return store.get(i);
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        });
+        if (store.size() > maxSize) {
+            compact();
+        } else {
+            reindex();
+        }
+    }
+
+    /**
+     * @return
+     *         true if the file is used by another shell: lines are read from it but new ones are kept in memory only
+     */
+    public boolean isReadOnly() {
+        return store.isReadOnly();
+    }
+
+    private boolean isKept(final String line) {
+        return filter == null || filter.isKept(line);
+    }
+
+    private void reindex() {
+        awaitIndexer();
+        index.clear();
+        indexed = 0;
+        cursor = store.size();
+        final int size = store.size();
+        // lines already in the file are indexed in background: opening a large history does not delay the console
+        indexer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < size; i++) {
+                    index.add(i, store.get(i));
+                }
+            }
+        }, "shell-history-index");
+        indexer.setDaemon(true);
+        indexer.start();
+        indexed = size;
+    }
+
+    private void awaitIndexer() {
+        if (indexer == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (indexer.isAlive()) {
+            try {
+                indexer.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        indexer = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * index the lines added since the last search
+     */
+    private void ensureIndexed() {
+        awaitIndexer();
+        for (; indexed < store.size(); indexed++) {
+            index.add(indexed, store.get(indexed));
+        }
+    }
+
+    /**
+     * keep only the last occurrence of the most recent lines
+     * 
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        awaitIndexer();
+        final Set<String> kept = new HashSet<String>();
+        final List<String> lines = new ArrayList<String>();
+        for (int i = store.size() - 1; i >= 0 && lines.size() < maxSize; i--) {
+            final String line = store.get(i);
+            if (isKept(line) && kept.add(line)) {
+                lines.add(line);
+            }
+        }
+        Collections.reverse(lines);
+        store.rewrite(lines);
+        reindex();
+    }
+
+    /**
+     * @param text
+     * @param startIndex
+     *            the search starts with the line before this index
+     * @param startsWith
+     *            true if the line must start with the text, otherwise it must contain it
+     * @return
+     *         index of the closest line before startIndex matching the text, -1 if none
+     */
+    public int searchBackwards(final String text, final int startIndex, final boolean startsWith) {
+        ensureIndexed();
+        return index.searchBackwards(text, startIndex, startsWith);
+    }
+
+    /**
+     * @param text
+     * @param startIndex
+     *            the search starts with the line at this index
+     * @param startsWith
+     *            true if the line must start with the text, otherwise it must contain it
+     * @return
+     *         index of the closest line after startIndex matching the text, -1 if none
+     */
+    public int searchForwards(final String text, final int startIndex, final boolean startsWith) {
+        ensureIndexed();
+        return index.searchForwards(text, startIndex, startsWith);
+    }
+
+    /**
+     * complete the last word of a line using the lines typed before starting the same way, most recent first
+     * 
+     * @param line
+     *            the line up to the cursor
+     * @param candidates
+     *            completions of the last word of the line
+     * @return
+     *         position in the line of the completed word, -1 if no line of the history starts with the line
+     */
+    public int complete(final String line, final List<CharSequence> candidates) {
+        int wordStart = line.length();
+        while (wordStart > 0 && !Character.isWhitespace(line.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        ensureIndexed();
+        final Set<String> words = new HashSet<String>();
+        int found = store.size();
+        while (words.size() < MAX_COMPLETIONS && (found = index.searchBackwards(line, found, true)) >= 0) {
+            final String match = store.get(found);
+            int wordEnd = line.length();
+            while (wordEnd < match.length() && !Character.isWhitespace(match.charAt(wordEnd))) {
+                wordEnd++;
+            }
+            final String word = match.substring(wordStart, wordEnd);
+            if (wordEnd > line.length() && words.add(word)) {
+                candidates.add(word);
+            }
+        }
+        return words.isEmpty() ? -1 : wordStart;
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.size() == 0;
+    }
+
+    @Override
+    public int index() {
+        return cursor;
+    }
+
+    @Override
+    public void clear() {
+        awaitIndexer();
+        store.clear();
+        index.clear();
+        indexed = 0;
+        cursor = 0;
+    }
+
+    @Override
+    public CharSequence get(final int i) {
+        return store.get(i);
+    }
+
+    @Override
+    public void add(final CharSequence item) {
+        final String line = item.toString();
+        final int size = store.size();
+        if (isKept(line) && (size == 0 || !line.equals(store.get(size - 1)))) {
+            try {
+                store.append(line);
+                if (store.size() >= 2 * maxSize) {
+                    compact();
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to write the history", e);
+            }
+        }
+        moveToEnd();
+    }
+
+    @Override
+    public void set(final int i, final CharSequence item) {
+        throw new UnsupportedOperationException("Lines of the history can't be modified");
+    }
+
+    @Override
+    public CharSequence remove(final int i) {
+        if (i == store.size() - 1) {
+            return removeLast();
+        }
+        throw new UnsupportedOperationException("Only the last line of the history can be removed");
+    }
+
+    @Override
+    public CharSequence removeFirst() {
+        if (store.size() == 1) {
+            return removeLast();
+        }
+        throw new UnsupportedOperationException("Only the last line of the history can be removed");
+    }
+
+    @Override
+    public CharSequence removeLast() {
+        final int last = store.size() - 1;
+        if (last < 0) {
+            throw new NoSuchElementException();
+        }
+        final String line = store.get(last);
+        awaitIndexer();
+        if (last < indexed) {
+            index.removeLast(last, line);
+            indexed--;
+        }
+        store.removeLast();
+        cursor = Math.min(cursor, store.size());
+        return line;
+    }
+
+    @Override
+    public void replace(final CharSequence item) {
+        if (store.size() > 0) {
+            removeLast();
+        }
+        add(item);
+    }
+
+    @Override
+    public ListIterator<Entry> entries(final int i) {
+        return new EntryIterator(i);
+    }
+
+    @Override
+    public ListIterator<Entry> entries() {
+        return entries(0);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return entries(0);
+    }
+
+    @Override
+    public CharSequence current() {
+        return cursor >= store.size() ? "" : store.get(cursor);
+    }
+
+    @Override
+    public boolean previous() {
+        if (cursor <= 0) {
+            return false;
+        }
+        cursor--;
+        return true;
+    }
+
+    @Override
+    public boolean next() {
+        if (cursor >= store.size()) {
+            return false;
+        }
+        cursor++;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        if (store.size() > 0 && cursor != 0) {
+            cursor = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean moveToLast() {
+        final int last = store.size() - 1;
+        if (last >= 0 && cursor != last) {
+            cursor = last;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean moveTo(final int i) {
+        if (i >= 0 && i < store.size()) {
+            cursor = i;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void moveToEnd() {
+        cursor = store.size();
+    }
+
+    /**
+     * write the lines added so far to the disk
+     */
+    @Override
+    public void flush() {
+        store.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        awaitIndexer();
+        store.close();
+    }
+
+    private static final class HistoryEntry implements Entry {
+
+        private final int index;
+
+        private final CharSequence value;
+
+        HistoryEntry(final int index, final CharSequence value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public CharSequence value() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return index + ": " + value;
+        }
+    }
+
+    /**
+     * Lines are read from the file as they are iterated
+     */
+    private final class EntryIterator implements ListIterator<Entry> {
+
+        private int next;
+
+        EntryIterator(final int next) {
+            this.next = next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < store.size();
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int i = next++;
+            return new HistoryEntry(i, store.get(i));
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public Entry previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            final int i = --next;
+            return new HistoryEntry(i, store.get(i));
+        }
+
+        @Override
+        public int nextIndex() {
+            return next;
+        }
+
+        @Override
+        public int previousIndex() {
+            return next - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(final Entry e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(final Entry e) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
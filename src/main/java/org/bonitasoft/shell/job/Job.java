@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.job;
+
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.color.ShellOutput;
+
+/**
+ * A command executed in background
+ * 
+ * @author Baptiste Mesta
+ */
+public class Job {
+
+    /**
+     * state of a job
+     */
+    public enum State {
+        RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private final int id;
+
+    private final Object owner;
+
+    private final String commandLine;
+
+    private final FutureTask<Boolean> task;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    private final StringWriter output = new StringWriter();
+
+    private final ShellOutput shellOutput = new ShellOutput(output, false);
+
+    Job(final int id, final Object owner, final String commandLine, final Callable<Boolean> callable) {
+        this.id = id;
+        this.owner = owner;
+        this.commandLine = commandLine;
+        // the user types the next commands while the job runs
+        final ShellInput input = ShellInput.current().background();
+        task = new FutureTask<Boolean>(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+                // what the command prints is kept until the user asks for it
+                final ShellOutput previous = ShellOutput.bind(shellOutput);
+                final ShellInput previousInput = ShellInput.bind(input);
+                try {
+                    return callable.call();
+                } finally {
+                    ShellInput.restore(previousInput);
+                    ShellOutput.restore(previous);
+                }
+            }
+        }) {
+
+            @Override
+            protected void done() {
+                endTime = System.currentTimeMillis();
+            }
+        };
+    }
+
+    FutureTask<Boolean> getTask() {
+        return task;
+    }
+
+    boolean isOwnedBy(final Object owner) {
+        return this.owner == owner;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCommandLine() {
+        return commandLine;
+    }
+
+    public State getState() {
+        if (!task.isDone()) {
+            return State.RUNNING;
+        }
+        if (task.isCancelled()) {
+            return State.CANCELLED;
+        }
+        return getError() == null && Boolean.TRUE.equals(getResultNow()) ? State.DONE : State.FAILED;
+    }
+
+    /**
+     * @return
+     *         time since the job started if it is running, its total duration otherwise
+     */
+    public long getDurationMillis() {
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    /**
+     * @return
+     *         what the command printed so far
+     */
+    public String getOutput() {
+        return output.toString();
+    }
+
+    /**
+     * @return
+     *         the exception thrown by the command if the job is finished and failed
+     */
+    public Throwable getError() {
+        if (!task.isDone() || task.isCancelled()) {
+            return null;
+        }
+        try {
+            task.get();
+            return null;
+        } catch (final ExecutionException e) {
+            return e.getCause();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private Boolean getResultNow() {
+        try {
+            return task.get();
+        } catch (final Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * wait for the end of the job
+     * 
+     * @return
+     *         the state of the job once finished
+     * @throws InterruptedException
+     */
+    public State await() throws InterruptedException {
+        try {
+            task.get();
+        } catch (final ExecutionException e) {
+            // reported by getError
+        } catch (final CancellationException e) {
+            // reported by getState
+        }
+        return getState();
+    }
+
+    /**
+     * @return
+     *         false if the job was already finished
+     */
+    public boolean cancel() {
+        return task.cancel(true);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + id + "] " + getState() + " " + getDurationMillis() + " ms  " + commandLine;
+    }
+
+}
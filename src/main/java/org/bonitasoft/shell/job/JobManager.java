@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.job;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execute commands in background on a bounded pool of daemon threads and keep track of them
+ * Jobs belong to the context of the session that submitted them: a session sees only its own jobs
+ * 
+ * @author Baptiste Mesta
+ */
+public class JobManager {
+
+    private final ExecutorService executor;
+
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final Map<Integer, Job> jobs = new ConcurrentSkipListMap<Integer, Job>();
+
+    private final Map<Integer, Job> notNotified = new ConcurrentSkipListMap<Integer, Job>();
+
+    /**
+     * @param maxConcurrentJobs
+     *            number of jobs running at the same time, others wait for a free thread
+     */
+    public JobManager(final int maxConcurrentJobs) {
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "shell-job-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        executor = threadPoolExecutor;
+    }
+
+    /**
+     * @param commandLine
+     *            description of the job
+     * @param owner
+     *            the context of the session submitting the job
+     * @param callable
+     *            what the job executes, returns true if it succeeded
+     * @return
+     *         the started job
+     */
+    public Job submit(final String commandLine, final Object owner, final Callable<Boolean> callable) {
+        final Job job = new Job(nextId.getAndIncrement(), owner, commandLine, callable);
+        jobs.put(job.getId(), job);
+        notNotified.put(job.getId(), job);
+        executor.execute(job.getTask());
+        return job;
+    }
+
+    /**
+     * @param id
+     * @param owner
+     * @return
+     *         the job or null if the owner has no job with this id
+     */
+    public Job getJob(final int id, final Object owner) {
+        final Job job = jobs.get(id);
+        return job != null && job.isOwnedBy(owner) ? job : null;
+    }
+
+    public List<Job> getJobs(final Object owner) {
+        final List<Job> owned = new ArrayList<Job>();
+        for (final Job job : jobs.values()) {
+            if (job.isOwnedBy(owner)) {
+                owned.add(job);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * @param owner
+     * @return
+     *         jobs of the owner finished since the last call, e.g. to notify the user before showing the prompt
+     */
+    public List<Job> pollFinishedJobs(final Object owner) {
+        final List<Job> finished = new ArrayList<Job>();
+        for (final Iterator<Job> iterator = notNotified.values().iterator(); iterator.hasNext();) {
+            final Job job = iterator.next();
+            if (job.isOwnedBy(owner) && job.getState() != Job.State.RUNNING) {
+                finished.add(job);
+                iterator.remove();
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * forget finished jobs of the owner
+     * 
+     * @param owner
+     */
+    public void purge(final Object owner) {
+        for (final Iterator<Job> iterator = jobs.values().iterator(); iterator.hasNext();) {
+            final Job job = iterator.next();
+            if (job.isOwnedBy(owner) && job.getState() != Job.State.RUNNING) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * cancel the running jobs of the owner and forget all its jobs, e.g. when its session is closed
+     * 
+     * @param owner
+     */
+    public void release(final Object owner) {
+        for (final Job job : getJobs(owner)) {
+            job.cancel();
+            jobs.remove(job.getId());
+            notNotified.remove(job.getId());
+        }
+    }
+
+    /**
+     * cancel all running jobs
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.metrics;
+
+/**
+ * Notified by the shell each time a command is executed
+ * Can be called concurrently when commands are executed in parallel
+ * 
+ * @author Baptiste Mesta
+ */
+public interface CommandListener {
+
+    /**
+     * @param metricName
+     *            name of what was executed, e.g. the name of the command or apiName.methodName for reflect commands
+     * @param durationNanos
+     *            time spent executing the command
+     * @param allocatedBytes
+     *            bytes allocated by the executing thread, -1 if the JVM can't tell
+     * @param error
+     *            the exception thrown by the command or null if it succeeded
+     */
+    void commandExecuted(String metricName, long durationNanos, long allocatedBytes, Throwable error);
+
+}
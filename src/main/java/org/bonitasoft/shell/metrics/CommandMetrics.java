@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collect latency histograms, error counts and allocations of executed commands
+ * 
+ * @author Baptiste Mesta
+ */
+public class CommandMetrics implements CommandListener, CommandMetricsMBean {
+
+    private static final String CSV_HEADER = "metric,count,errors,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,allocated_bytes_per_call";
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+    @Override
+    public void commandExecuted(final String metricName, final long durationNanos, final long allocatedBytes, final Throwable error) {
+        Metric metric = metrics.get(metricName);
+        if (metric == null) {
+            metric = new Metric();
+            final Metric existing = metrics.putIfAbsent(metricName, metric);
+            if (existing != null) {
+                metric = existing;
+            }
+        }
+        metric.histogram.record(durationNanos);
+        if (error != null) {
+            metric.errors.incrementAndGet();
+        }
+        if (allocatedBytes >= 0) {
+            metric.allocatedBytes.addAndGet(allocatedBytes);
+            metric.allocationSamples.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return
+     *         bytes allocated so far by the current thread or -1 if the JVM does not support it
+     */
+    public static long currentThreadAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param metricName
+     * @return
+     *         the histogram of the metric or null if nothing was recorded for it
+     */
+    public LatencyHistogram getHistogram(final String metricName) {
+        final Metric metric = metrics.get(metricName);
+        return metric == null ? null : metric.histogram;
+    }
+
+    @Override
+    public String[] getMetricNames() {
+        final List<String> names = new ArrayList<String>(metrics.keySet());
+        Collections.sort(names);
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public long getTotalCount() {
+        long total = 0;
+        for (final Metric metric : metrics.values()) {
+            total += metric.histogram.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (final Metric metric : metrics.values()) {
+            total += metric.errors.get();
+        }
+        return total;
+    }
+
+    @Override
+    public long getCount(final String metricName) {
+        final Metric metric = metrics.get(metricName);
+        return metric == null ? 0 : metric.histogram.getCount();
+    }
+
+    @Override
+    public long getErrors(final String metricName) {
+        final Metric metric = metrics.get(metricName);
+        return metric == null ? 0 : metric.errors.get();
+    }
+
+    @Override
+    public double getMeanMillis(final String metricName) {
+        final Metric metric = metrics.get(metricName);
+        return metric == null ? 0 : toMillis(metric.histogram.getMeanNanos());
+    }
+
+    @Override
+    public double getPercentileMillis(final String metricName, final double percentile) {
+        final Metric metric = metrics.get(metricName);
+        return metric == null ? 0 : toMillis(metric.histogram.getPercentileNanos(percentile));
+    }
+
+    /**
+     * @param metricName
+     * @return
+     *         mean number of bytes allocated per call, -1 if unknown
+     */
+    public long getAllocatedBytesPerCall(final String metricName) {
+        final Metric metric = metrics.get(metricName);
+        if (metric == null || metric.allocationSamples.get() == 0) {
+            return -1;
+        }
+        return metric.allocatedBytes.get() / metric.allocationSamples.get();
+    }
+
+    @Override
+    public String toCsv() {
+        final StringBuilder csv = new StringBuilder(CSV_HEADER).append('\n');
+        for (final String name : getMetricNames()) {
+            final LatencyHistogram histogram = metrics.get(name).histogram;
+            csv.append('"').append(name.replace("\"", "\"\"")).append('"').append(',')
+                    .append(histogram.getCount()).append(',')
+                    .append(getErrors(name)).append(',')
+                    .append(formatMillis(histogram.getMeanNanos())).append(',')
+                    .append(formatMillis(histogram.getPercentileNanos(50))).append(',')
+                    .append(formatMillis(histogram.getPercentileNanos(90))).append(',')
+                    .append(formatMillis(histogram.getPercentileNanos(99))).append(',')
+                    .append(formatMillis(histogram.getMaxNanos())).append(',')
+                    .append(getAllocatedBytesPerCall(name)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * write the metrics as CSV in the given file
+     * 
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(final File file) throws IOException {
+        final Writer writer = new FileWriter(file);
+        try {
+            writer.write(toCsv());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public void reset() {
+        metrics.clear();
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1000000d;
+    }
+
+    /**
+     * @param nanos
+     * @return
+     *         the duration in milliseconds with 3 decimals, as printed by the stats command and written in CSV
+     */
+    public static String formatMillis(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", toMillis(nanos));
+    }
+
+    private static class Metric {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private final AtomicLong allocatedBytes = new AtomicLong();
+
+        private final AtomicLong allocationSamples = new AtomicLong();
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.metrics;
+
+/**
+ * JMX view of {@link CommandMetrics}
+ * 
+ * @author Baptiste Mesta
+ */
+public interface CommandMetricsMBean {
+
+    String[] getMetricNames();
+
+    long getTotalCount();
+
+    long getTotalErrors();
+
+    long getCount(String metricName);
+
+    long getErrors(String metricName);
+
+    double getMeanMillis(String metricName);
+
+    double getPercentileMillis(String metricName, double percentile);
+
+    String toCsv();
+
+    void reset();
+
+}
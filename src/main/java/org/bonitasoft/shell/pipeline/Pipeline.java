@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.pipeline;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.command.ApiCommand;
+import org.bonitasoft.shell.command.LazyShellCommand;
+import org.bonitasoft.shell.command.ShellCommand;
+import org.bonitasoft.shell.render.BeanProperties;
+import org.bonitasoft.shell.render.SearchResults;
+
+/**
+ * Chain API calls with |: the result of a stage is given, as an object, to the next stage
+ * The first stage is an API call. Next stages can be:
+ * <ul>
+ * <li>map &lt;property&gt;: the property of each element</li>
+ * <li>map &lt;api&gt; &lt;method&gt; [parameters]: the result of the call for each element</li>
+ * <li>filter &lt;property&gt; [=|!=|&lt;|&gt;|&lt;=|&gt;=|~] &lt;value&gt;: the elements matching the condition, ~ means contains</li>
+ * <li>foreach &lt;api&gt; &lt;method&gt; [parameters]: call the method for each element, gives the number of calls</li>
+ * <li>&lt;api&gt; &lt;method&gt; [parameters]: call the method once with the whole result</li>
+ * </ul>
+ * In parameters, $ is replaced by the element (or the whole result) and $.&lt;property&gt; by its property, when there
+ * is no $ the element is added as last parameter. Elements are passed as is, without being printed and parsed again.
+ * map, filter and foreach iterate on the elements of a Bonita SearchResult, given by its getResult().
+ * e.g. processAPI searchProcessInstances 0,100 | map id | foreach processAPI cancelProcessInstance $
+ * 
+ * @author Baptiste Mesta
+ */
+public class Pipeline {
+
+    public static final String PIPE = "|";
+
+    public static final String PLACEHOLDER = "$";
+
+    private static final String PROPERTY_PREFIX = "$.";
+
+    private static final String MAP = "map";
+
+    private static final String FILTER = "filter";
+
+    private static final String FOREACH = "foreach";
+
+    private final Map<String, ? extends ShellCommand<?>> commands;
+
+    /**
+     * @param commands
+     *            commands of the shell by name, API commands can be used as stages
+     */
+    public Pipeline(final Map<String, ? extends ShellCommand<?>> commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * @param line
+     *            a parsed line
+     * @return
+     *         true if the line contains an unquoted |
+     */
+    public static boolean isPipeline(final List<String> line) {
+        return line.contains(PIPE);
+    }
+
+    /**
+     * @param line
+     *            a parsed line
+     * @return
+     *         the stages of the line, the name of the command or of the operation first
+     */
+    public static List<List<String>> split(final List<String> line) {
+        final List<List<String>> stages = new ArrayList<List<String>>();
+        List<String> stage = new ArrayList<String>();
+        for (final String token : line) {
+            if (PIPE.equals(token)) {
+                stages.add(stage);
+                stage = new ArrayList<String>();
+            } else {
+                stage.add(token);
+            }
+        }
+        stages.add(stage);
+        return stages;
+    }
+
+    /**
+     * @param stages
+     *            as given by {@link #split(List)}
+     * @param context
+     * @return
+     *         the result of the last stage
+     * @throws Exception
+     *             exception of a call or if a stage is not valid
+     */
+    public Object execute(final List<List<String>> stages, final ShellContext context) throws Exception {
+        final List<String> first = stages.get(0);
+        if (first.isEmpty()) {
+            throw new IllegalArgumentException("empty stage in pipeline");
+        }
+        Object result = getApiCommand(first.get(0)).call(first.subList(1, first.size()), context);
+        for (int i = 1; i < stages.size(); i++) {
+            result = execute(stages.get(i), result, context);
+        }
+        return result;
+    }
+
+    private Object execute(final List<String> stage, final Object input, final ShellContext context) throws Exception {
+        if (stage.isEmpty()) {
+            throw new IllegalArgumentException("empty stage in pipeline");
+        }
+        final String name = stage.get(0);
+        final List<String> args = stage.subList(1, stage.size());
+        if (MAP.equals(name)) {
+            if (args.size() == 1) {
+                return map(SearchResults.unwrap(input), args.get(0));
+            }
+            return map(SearchResults.unwrap(input), args, context);
+        }
+        if (FILTER.equals(name)) {
+            return filter(SearchResults.unwrap(input), args);
+        }
+        if (FOREACH.equals(name)) {
+            return foreach(SearchResults.unwrap(input), args, context);
+        }
+        return call(stage, input, context);
+    }
+
+    private Object map(final Object input, final String property) {
+        if (!isMultiple(input)) {
+            return getProperty(input, property);
+        }
+        final List<Object> results = new ArrayList<Object>();
+        for (final Iterator<?> iterator = elements(input); iterator.hasNext();) {
+            results.add(getProperty(iterator.next(), property));
+        }
+        return results;
+    }
+
+    private Object map(final Object input, final List<String> call, final ShellContext context) throws Exception {
+        if (!isMultiple(input)) {
+            return call(call, input, context);
+        }
+        final List<Object> results = new ArrayList<Object>();
+        for (final Iterator<?> iterator = elements(input); iterator.hasNext();) {
+            results.add(call(call, iterator.next(), context));
+        }
+        return results;
+    }
+
+    private Integer foreach(final Object input, final List<String> call, final ShellContext context) throws Exception {
+        int calls = 0;
+        for (final Iterator<?> iterator = elements(input); iterator.hasNext();) {
+            call(call, iterator.next(), context);
+            calls++;
+        }
+        return calls;
+    }
+
+    private List<Object> filter(final Object input, final List<String> args) {
+        if (args.size() != 2 && args.size() != 3) {
+            throw new IllegalArgumentException("usage: filter <property> [=|!=|<|>|<=|>=|~] <value>");
+        }
+        final String property = args.get(0);
+        final Condition condition = args.size() == 2 ? Condition.EQUALS : Condition.of(args.get(1));
+        final String expected = unquote(args.get(args.size() - 1));
+        final List<Object> results = new ArrayList<Object>();
+        for (final Iterator<?> iterator = elements(input); iterator.hasNext();) {
+            final Object element = iterator.next();
+            if (condition.matches(getProperty(element, property), expected)) {
+                results.add(element);
+            }
+        }
+        return results;
+    }
+
+    private Object call(final List<String> call, final Object element, final ShellContext context) throws Exception {
+        if (call.size() < 2) {
+            throw new IllegalArgumentException("usage: <api> <method> [parameters]");
+        }
+        final List<Object> args = new ArrayList<Object>(call.size());
+        boolean placeholder = false;
+        for (int i = 1; i < call.size(); i++) {
+            final String arg = call.get(i);
+            if (PLACEHOLDER.equals(arg)) {
+                args.add(element);
+                placeholder = true;
+            } else if (arg.startsWith(PROPERTY_PREFIX)) {
+                args.add(BeanProperties.getValue(element, arg.substring(PROPERTY_PREFIX.length())));
+                placeholder = true;
+            } else {
+                args.add(arg);
+            }
+        }
+        if (!placeholder) {
+            args.add(element);
+        }
+        return getApiCommand(call.get(0)).call(args, context);
+    }
+
+    private ApiCommand getApiCommand(final String name) {
+        final ShellCommand<?> command = LazyShellCommand.unwrap(commands.get(name));
+        if (!(command instanceof ApiCommand)) {
+            throw new IllegalArgumentException(name + " is not an API, only API calls can be used in a pipeline");
+        }
+        return (ApiCommand) command;
+    }
+
+    private static Object getProperty(final Object element, final String property) {
+        return PLACEHOLDER.equals(property) ? element : BeanProperties.getValue(element, property);
+    }
+
+    private static boolean isMultiple(final Object value) {
+        return value instanceof Iterable || value != null && value.getClass().isArray();
+    }
+
+    private static Iterator<?> elements(final Object value) {
+        if (value == null) {
+            return Collections.emptyList().iterator();
+        }
+        if (value instanceof Iterable) {
+            return ((Iterable<?>) value).iterator();
+        }
+        if (value.getClass().isArray()) {
+            final List<Object> list = new ArrayList<Object>(Array.getLength(value));
+            for (int i = 0; i < Array.getLength(value); i++) {
+                list.add(Array.get(value, i));
+            }
+            return list.iterator();
+        }
+        return Collections.singletonList(value).iterator();
+    }
+
+    private static String unquote(final String value) {
+        final int length = value.length();
+        if (length >= 2 && value.charAt(0) == '"' && value.charAt(length - 1) == '"') {
+            return value.substring(1, length - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Comparison of a filter, numbers are compared as numbers and other values using their string representation
+     */
+    private enum Condition {
+        EQUALS("="), NOT_EQUALS("!="), LESS("<"), GREATER(">"), LESS_OR_EQUALS("<="), GREATER_OR_EQUALS(">="), CONTAINS("~");
+
+        private final String operator;
+
+        private Condition(final String operator) {
+            this.operator = operator;
+        }
+
+        static Condition of(final String operator) {
+            for (final Condition condition : values()) {
+                if (condition.operator.equals(operator)) {
+                    return condition;
+                }
+            }
+            throw new IllegalArgumentException("unknown filter operator: " + operator);
+        }
+
+        boolean matches(final Object value, final String expected) {
+            final String text = String.valueOf(value);
+            if (this == CONTAINS) {
+                return text.contains(expected);
+            }
+            final int comparison = compare(value, text, expected);
+            switch (this) {
+                case EQUALS:
+                    return comparison == 0;
+                case NOT_EQUALS:
+                    return comparison != 0;
+                case LESS:
+                    return comparison < 0;
+                case GREATER:
+                    return comparison > 0;
+                case LESS_OR_EQUALS:
+                    return comparison <= 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        private static int compare(final Object value, final String text, final String expected) {
+            if (value instanceof Number) {
+                try {
+                    return Double.compare(((Number) value).doubleValue(), Double.parseDouble(expected));
+                } catch (final NumberFormatException e) {
+                    // compared as strings
+                }
+            }
+            return text.compareTo(expected);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.render;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Readable properties of result elements, introspected once per class
+ * Also used by pipelines to read a property of the results of a command
+ * 
+ * @author Baptiste Mesta
+ */
+public final class BeanProperties {
+
+    static final String VALUE = "value";
+
+    private static final ConcurrentMap<Class<?>, Map<String, Method>> GETTERS = new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    private BeanProperties() {
+    }
+
+    /**
+     * @param value
+     * @return
+     *         true if the value is printed as is and not as a set of properties
+     */
+    public static boolean isScalar(final Object value) {
+        return value == null || value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Date || value instanceof Enum || value.getClass().isArray();
+    }
+
+    /**
+     * @param element
+     * @return
+     *         names of the columns used to print the element
+     */
+    static List<String> getColumns(final Object element) {
+        if (element instanceof Map) {
+            final List<String> columns = new ArrayList<String>();
+            for (final Object key : ((Map<?, ?>) element).keySet()) {
+                columns.add(String.valueOf(key));
+            }
+            return columns;
+        }
+        final List<String> columns = new ArrayList<String>();
+        if (!isScalar(element)) {
+            columns.addAll(getGetters(element.getClass()).keySet());
+        }
+        if (columns.isEmpty()) {
+            columns.add(VALUE);
+        }
+        return columns;
+    }
+
+    /**
+     * @param element
+     * @param column
+     * @return
+     *         the value of the column for this element
+     */
+    public static Object getValue(final Object element, final String column) {
+        if (element instanceof Map) {
+            return ((Map<?, ?>) element).get(column);
+        }
+        if (isScalar(element)) {
+            return element;
+        }
+        final Map<String, Method> getters = getGetters(element.getClass());
+        if (getters.isEmpty()) {
+            return element;
+        }
+        final Method getter = getters.get(column);
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return getter.invoke(element);
+        } catch (final Exception e) {
+            return "<" + e.getClass().getSimpleName() + ">";
+        }
+    }
+
+    private static void makeAccessible(final Method method) {
+        try {
+            // public getters of non public implementation classes
+            method.setAccessible(true);
+        } catch (final RuntimeException e) {
+            // not allowed: the getter is called only if it is accessible anyway
+        }
+    }
+
+    private static Map<String, Method> getGetters(final Class<?> clazz) {
+        Map<String, Method> getters = GETTERS.get(clazz);
+        if (getters == null) {
+            getters = new LinkedHashMap<String, Method>();
+            try {
+                for (final PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz, Object.class).getPropertyDescriptors()) {
+                    final Method readMethod = descriptor.getReadMethod();
+                    if (readMethod != null && readMethod.getParameterTypes().length == 0) {
+                        makeAccessible(readMethod);
+                        getters.put(descriptor.getName(), readMethod);
+                    }
+                }
+            } catch (final IntrospectionException e) {
+                // no property: printed using toString
+            }
+            GETTERS.putIfAbsent(clazz, getters);
+        }
+        return getters;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.render;
+
+/**
+ * How results of commands are written
+ * 
+ * @author Baptiste Mesta
+ */
+public enum OutputFormat {
+
+    /**
+     * toString of the result, one line per element for collections
+     */
+    TEXT,
+
+    /**
+     * aligned columns, one column per property of the elements
+     */
+    TABLE,
+
+    /**
+     * one JSON object per line
+     */
+    JSONL,
+
+    /**
+     * comma separated values with a header line
+     */
+    CSV;
+
+    /**
+     * @param name
+     *            name of the format, case insensitive
+     * @return
+     *         the format
+     */
+    public static OutputFormat parse(final String name) {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown format " + name + ", use text, table, jsonl or csv");
+        }
+    }
+
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.render;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Write results of commands element by element so that large collections are never turned into one big String
+ * Collections, arrays, maps and Bonita search results can be printed as text, table, JSON lines or CSV, with an offset
+ * and a limit
+ * 
+ * @author Baptiste Mesta
+ */
+public class ResultRenderer {
+
+    /**
+     * number of rows read to compute the width of the columns of a table, following rows are streamed: a longer value
+     * makes its row wider than the others
+     */
+    private static final int TABLE_SAMPLE = 100;
+
+    private static final String FORMAT_OPTION = "--format";
+
+    private static final String LIMIT_OPTION = "--limit";
+
+    private static final String OFFSET_OPTION = "--offset";
+
+    private final OutputFormat format;
+
+    private final int offset;
+
+    private final int limit;
+
+    /**
+     * @param format
+     * @param offset
+     *            number of elements to skip
+     * @param limit
+     *            maximum number of elements to write, -1 for no limit
+     */
+    public ResultRenderer(final OutputFormat format, final int offset, final int limit) {
+        this.format = format;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * create a renderer from the options --format, --offset and --limit found in the arguments,
+     * the options and their values are removed from the arguments
+     * 
+     * @param args
+     * @return
+     *         the renderer
+     */
+    public static ResultRenderer fromArguments(final List<String> args) {
+        OutputFormat format = OutputFormat.TEXT;
+        int offset = 0;
+        int limit = -1;
+        for (int i = 0; i < args.size() - 1;) {
+            final String option = args.get(i);
+            if (FORMAT_OPTION.equals(option)) {
+                format = OutputFormat.parse(args.get(i + 1));
+            } else if (OFFSET_OPTION.equals(option)) {
+                offset = Integer.parseInt(args.get(i + 1));
+            } else if (LIMIT_OPTION.equals(option)) {
+                limit = Integer.parseInt(args.get(i + 1));
+            } else {
+                i++;
+                continue;
+            }
+            args.remove(i);
+            args.remove(i);
+        }
+        return new ResultRenderer(format, offset, limit);
+    }
+
+    /**
+     * @param result
+     *            the result to write
+     * @param writer
+     *            where to write, flushed but not closed
+     * @throws IOException
+     */
+    public void render(final Object rawResult, final Writer writer) throws IOException {
+        final Object result = SearchResults.unwrap(rawResult);
+        final Iterator<?> elements = elements(result);
+        if (elements == null) {
+            if (format == OutputFormat.JSONL) {
+                writeJson(result, writer, true);
+            } else {
+                writer.write(display(result));
+            }
+            writer.write('\n');
+        } else {
+            skip(elements);
+            final Iterator<?> page = limit < 0 ? elements : new LimitIterator(elements, limit);
+            switch (format) {
+                case TABLE:
+                    writeTable(page, writer);
+                    break;
+                case CSV:
+                    writeCsv(page, writer);
+                    break;
+                case JSONL:
+                    while (page.hasNext()) {
+                        writeJson(page.next(), writer, true);
+                        writer.write('\n');
+                    }
+                    break;
+                default:
+                    while (page.hasNext()) {
+                        writer.write(display(page.next()));
+                        writer.write('\n');
+                    }
+            }
+        }
+        writer.flush();
+    }
+
+    private void skip(final Iterator<?> elements) {
+        for (int i = 0; i < offset && elements.hasNext(); i++) {
+            elements.next();
+        }
+    }
+
+    /**
+     * @return
+     *         an iterator on the elements of the result, null if the result is not a collection
+     */
+    private static Iterator<?> elements(final Object result) {
+        if (result instanceof Iterable) {
+            return ((Iterable<?>) result).iterator();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).entrySet().iterator();
+        }
+        if (result != null && result.getClass().isArray() && !(result instanceof char[])) {
+            return new ArrayIterator(result);
+        }
+        return null;
+    }
+
+    private void writeTable(final Iterator<?> elements, final Writer writer) throws IOException {
+        if (!elements.hasNext()) {
+            return;
+        }
+        final List<Object> sample = new ArrayList<Object>(TABLE_SAMPLE);
+        while (sample.size() < TABLE_SAMPLE && elements.hasNext()) {
+            sample.add(elements.next());
+        }
+        final List<String> columns = columns(sample.get(0));
+        final int[] widths = new int[columns.size()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = columns.get(i).length();
+            for (final Object element : sample) {
+                widths[i] = Math.max(widths[i], text(value(element, columns.get(i))).length());
+            }
+        }
+        writeRow(columns, widths, writer);
+        for (int i = 0; i < widths.length; i++) {
+            writer.write(i == 0 ? "" : "-+-");
+            pad(writer, "", widths[i], '-');
+        }
+        writer.write('\n');
+        final List<String> row = new ArrayList<String>(columns.size());
+        for (final Object element : sample) {
+            writeRow(toRow(element, columns, row), widths, writer);
+        }
+        while (elements.hasNext()) {
+            writeRow(toRow(elements.next(), columns, row), widths, writer);
+        }
+    }
+
+    private static List<String> toRow(final Object element, final List<String> columns, final List<String> row) {
+        row.clear();
+        for (final String column : columns) {
+            row.add(text(value(element, column)));
+        }
+        return row;
+    }
+
+    private static void writeRow(final List<String> row, final int[] widths, final Writer writer) throws IOException {
+        for (int i = 0; i < widths.length; i++) {
+            writer.write(i == 0 ? "" : " | ");
+            pad(writer, row.get(i), widths[i], ' ');
+        }
+        writer.write('\n');
+    }
+
+    private static void pad(final Writer writer, final String text, final int width, final char padding) throws IOException {
+        writer.write(text);
+        for (int i = text.length(); i < width; i++) {
+            writer.write(padding);
+        }
+    }
+
+    private void writeCsv(final Iterator<?> elements, final Writer writer) throws IOException {
+        List<String> columns = null;
+        while (elements.hasNext()) {
+            final Object element = elements.next();
+            if (columns == null) {
+                columns = columns(element);
+                writeCsvLine(columns, writer);
+            }
+            final List<String> row = new ArrayList<String>(columns.size());
+            writeCsvLine(toRow(element, columns, row), writer);
+        }
+    }
+
+    private static void writeCsvLine(final List<String> values, final Writer writer) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            final String value = values.get(i);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * @param value
+     * @param writer
+     * @param expand
+     *            true to write the properties of a bean, false to write its toString (avoid cycles in nested beans)
+     */
+    private static void writeJson(final Object value, final Writer writer, final boolean expand) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writer.write(value.toString());
+        } else if (value instanceof Date) {
+            writer.write(Long.toString(((Date) value).getTime()));
+        } else if (value instanceof Map) {
+            writer.write('{');
+            boolean first = true;
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeJsonString(String.valueOf(entry.getKey()), writer);
+                writer.write(':');
+                writeJson(entry.getValue(), writer, false);
+            }
+            writer.write('}');
+        } else if (value instanceof Map.Entry) {
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+            writeJson(Collections.singletonMap(entry.getKey(), entry.getValue()), writer, expand);
+        } else if (value instanceof char[]) {
+            writeJsonString(new String((char[]) value), writer);
+        } else if (value instanceof Iterable || value.getClass().isArray()) {
+            final Iterator<?> iterator = elements(value);
+            writer.write('[');
+            while (iterator.hasNext()) {
+                writeJson(iterator.next(), writer, false);
+                if (iterator.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write(']');
+        } else if (expand && !BeanProperties.isScalar(value)) {
+            writer.write('{');
+            boolean first = true;
+            for (final String column : BeanProperties.getColumns(value)) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeJsonString(column, writer);
+                writer.write(':');
+                writeJson(BeanProperties.getValue(value, column), writer, false);
+            }
+            writer.write('}');
+        } else {
+            writeJsonString(value.toString(), writer);
+        }
+    }
+
+    private static void writeJsonString(final String string, final Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static List<String> columns(final Object element) {
+        if (element instanceof Map.Entry) {
+            final List<String> columns = new ArrayList<String>(2);
+            columns.add("key");
+            columns.add(BeanProperties.VALUE);
+            return columns;
+        }
+        return BeanProperties.getColumns(element);
+    }
+
+    private static Object value(final Object element, final String column) {
+        if (element instanceof Map.Entry) {
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) element;
+            return "key".equals(column) ? entry.getKey() : entry.getValue();
+        }
+        return BeanProperties.getValue(element, column);
+    }
+
+    /**
+     * @return
+     *         the value as printed in text format: its toString, except for arrays
+     */
+    private static String display(final Object value) {
+        return value != null && value.getClass().isArray() ? text(value) : String.valueOf(value);
+    }
+
+    private static String text(final Object value) {
+        if (value instanceof Date) {
+            return Long.toString(((Date) value).getTime());
+        }
+        if (value instanceof char[]) {
+            return new String((char[]) value);
+        }
+        if (value != null && value.getClass().isArray()) {
+            final StringBuilder text = new StringBuilder().append('[');
+            final int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                text.append(text(Array.get(value, i)));
+            }
+            return text.append(']').toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static class ArrayIterator implements Iterator<Object> {
+
+        private final Object array;
+
+        private final int length;
+
+        private int index;
+
+        ArrayIterator(final Object array) {
+            this.array = array;
+            length = Array.getLength(array);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < length;
+        }
+
+        @Override
+        public Object next() {
+            if (index >= length) {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class LimitIterator implements Iterator<Object> {
+
+        private final Iterator<?> delegate;
+
+        private int remaining;
+
+        LimitIterator(final Iterator<?> delegate, final int limit) {
+            this.delegate = delegate;
+            remaining = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 && delegate.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
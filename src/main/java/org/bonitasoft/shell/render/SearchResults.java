@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.render;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read the elements of a Bonita SearchResult, which is not a collection itself
+ * The engine API is not a dependency of the shell: the interface is found by its name, once per class
+ * 
+ * @author Baptiste Mesta
+ */
+public final class SearchResults {
+
+    private static final String SEARCH_RESULT_INTERFACE = "org.bonitasoft.engine.search.SearchResult";
+
+    private static final String GET_RESULT = "getResult";
+
+    /**
+     * getResult method of each class, {@link #NOT_A_SEARCH_RESULT} for other classes
+     */
+    private static final ConcurrentMap<Class<?>, Method> GET_RESULT_METHODS = new ConcurrentHashMap<Class<?>, Method>();
+
+    private static final Method NOT_A_SEARCH_RESULT;
+    static {
+        try {
+            NOT_A_SEARCH_RESULT = Object.class.getMethod("toString");
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SearchResults() {
+    }
+
+    /**
+     * @param result
+     * @return
+     *         the list of elements if the result is a SearchResult, the result itself otherwise
+     */
+    public static Object unwrap(final Object result) {
+        if (result == null) {
+            return null;
+        }
+        final Method getResult = getResultMethod(result.getClass());
+        if (getResult == NOT_A_SEARCH_RESULT) {
+            return result;
+        }
+        try {
+            return getResult.invoke(result);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Method getResultMethod(final Class<?> resultClass) {
+        Method method = GET_RESULT_METHODS.get(resultClass);
+        if (method == null) {
+            method = findSearchResultMethod(resultClass);
+            GET_RESULT_METHODS.putIfAbsent(resultClass, method);
+        }
+        return method;
+    }
+
+    private static Method findSearchResultMethod(final Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (final Class<?> implemented : current.getInterfaces()) {
+                if (SEARCH_RESULT_INTERFACE.equals(implemented.getName())) {
+                    try {
+                        // called through the public interface: implementations are usually not public
+                        return implemented.getMethod(GET_RESULT);
+                    } catch (final NoSuchMethodException e) {
+                        return NOT_A_SEARCH_RESULT;
+                    }
+                }
+                final Method method = findSearchResultMethod(implemented);
+                if (method != NOT_A_SEARCH_RESULT) {
+                    return method;
+                }
+            }
+        }
+        return NOT_A_SEARCH_RESULT;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Client of a {@link ShellServer}: send lines and read their output up to the next prompt
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellClient implements Closeable {
+
+    private final Socket socket;
+
+    private final Reader reader;
+
+    private final Writer writer;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * connect to the server and wait for its first prompt
+     * 
+     * @param address
+     * @throws IOException
+     */
+    public ShellClient(final InetSocketAddress address) throws IOException {
+        socket = new Socket(address.getAddress(), address.getPort());
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), ShellServer.UTF_8));
+        writer = new OutputStreamWriter(socket.getOutputStream(), ShellServer.UTF_8);
+        readUntilPrompt();
+    }
+
+    /**
+     * @param line
+     *            the command line to execute
+     * @return
+     *         the output of the line, without the prompt that follows it
+     * @throws IOException
+     */
+    public String execute(final String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+        return readUntilPrompt();
+    }
+
+    /**
+     * @return
+     *         text received up to the next prompt or until the server closes the connection
+     */
+    private String readUntilPrompt() throws IOException {
+        buffer.setLength(0);
+        final int promptLength = ShellServer.PROMPT.length();
+        int c;
+        while ((c = reader.read()) >= 0) {
+            buffer.append((char) c);
+            if (c == ' ' && buffer.length() >= promptLength
+                    && buffer.indexOf(ShellServer.PROMPT, buffer.length() - promptLength) >= 0) {
+                buffer.setLength(buffer.length() - promptLength);
+                break;
+            }
+        }
+        return buffer.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * execute the lines of the standard input on a server
+     * 
+     * @param args
+     *            host and port of the server
+     * @throws IOException
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ShellClient <host> <port>");
+            System.exit(2);
+        }
+        final ShellClient client = new ShellClient(new InetSocketAddress(args[0], Integer.parseInt(args[1])));
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            System.out.print(ShellServer.PROMPT);
+            System.out.flush();
+            String line;
+            while ((line = in.readLine()) != null) {
+                System.out.print(client.execute(line));
+                if (client.socket.isClosed() || "exit".equals(line.trim())) {
+                    break;
+                }
+                System.out.print(ShellServer.PROMPT);
+                System.out.flush();
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+}
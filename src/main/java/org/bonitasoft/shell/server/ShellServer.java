@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bonitasoft.shell.BaseShell;
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.ShellContextFactory;
+import org.bonitasoft.shell.ShellInput;
+import org.bonitasoft.shell.ShellThreads;
+import org.bonitasoft.shell.color.ShellOutput;
+import org.bonitasoft.shell.command.HelpCommand;
+import org.bonitasoft.shell.command.LazyShellCommand;
+import org.bonitasoft.shell.command.LoginCommand;
+import org.bonitasoft.shell.command.ShellCommand;
+import org.bonitasoft.shell.completer.DynamicValueCompleter;
+
+/**
+ * Serve many shell sessions from one JVM over a line protocol that can be used with telnet or {@link ShellClient}
+ * A single thread accepts connections, reads lines and writes output using a selector, lines are executed on worker
+ * threads, virtual if possible. All sessions share the commands of the shell and their method indexes, each
+ * connection has its own context created by the {@link ShellContextFactory} so each client logs in with its own
+ * account.
+ * Clients may be any user of the machine: they can only execute login and help until they are logged in, then the
+ * commands given to the server, and they can't use the files of the server, see {@link ShellInput#REMOTE}.
+ * Lines of a session are executed one after the other, its output is sent each time it is flushed, followed by the
+ * prompt when the line is finished. A session writing faster than its client reads waits for the client
+ * 
+ * @author Baptiste Mesta
+ */
+public class ShellServer<T extends ShellContext> implements Closeable {
+
+    /**
+     * sent when the server is ready to execute a line
+     */
+    public static final String PROMPT = "bonita> ";
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    // output of a session is encoded and sent in chunks of this number of characters
+    private static final int OUTPUT_CHUNK_SIZE = 8 * 1024;
+
+    private static final int MAX_PENDING_CHUNKS = 16;
+
+    private final BaseShell<T> shell;
+
+    private final ShellContextFactory<T> contextFactory;
+
+    private final InetSocketAddress address;
+
+    private final Collection<String> remoteCommands;
+
+    private HashMap<String, ShellCommand<T>> commands;
+
+    private final ExecutorService executor;
+
+    private final Queue<Session> pendingWrites = new ConcurrentLinkedQueue<Session>();
+
+    private final Set<Session> sessions = Collections.newSetFromMap(new ConcurrentHashMap<Session, Boolean>());
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private Thread selectorThread;
+
+    private volatile boolean running;
+
+    /**
+     * @param shell
+     *            the shell executing the lines, it is initialized when the server is started
+     * @param contextFactory
+     *            creates the context of each connection
+     * @param address
+     *            address to listen to, port 0 to use any free port
+     */
+    public ShellServer(final BaseShell<T> shell, final ShellContextFactory<T> contextFactory, final InetSocketAddress address) {
+        this(shell, contextFactory, address, null);
+    }
+
+    /**
+     * @param shell
+     *            the shell executing the lines, it is initialized when the server is started
+     * @param contextFactory
+     *            creates the context of each connection
+     * @param address
+     *            address to listen to, port 0 to use any free port
+     * @param remoteCommands
+     *            names of the commands clients can execute, null for {@link BaseShell#getRemoteCommands()}
+     */
+    public ShellServer(final BaseShell<T> shell, final ShellContextFactory<T> contextFactory, final InetSocketAddress address,
+            final Collection<String> remoteCommands) {
+        this.shell = shell;
+        this.contextFactory = contextFactory;
+        this.address = address;
+        this.remoteCommands = remoteCommands;
+        executor = ShellThreads.newExecutor("shell-session-");
+    }
+
+    /**
+     * initialize the shell and start accepting connections
+     * 
+     * @throws Exception
+     */
+    public void start() throws Exception {
+        shell.init();
+        commands = shell.restrictCommands(remoteCommands != null ? remoteCommands : shell.getRemoteCommands());
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "shell-server");
+        selectorThread.start();
+    }
+
+    /**
+     * @return
+     *         the address the server listens to, with the actual port
+     * @throws IOException
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * @return
+     *         number of connected clients
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * wait until the server is closed
+     * 
+     * @throws InterruptedException
+     */
+    public void awaitTermination() throws InterruptedException {
+        selectorThread.join();
+    }
+
+    /**
+     * disconnect all clients, stop the server and destroy the shell
+     */
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            shell.destroy();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select();
+                Session session;
+                while ((session = pendingWrites.poll()) != null) {
+                    session.enableWrite();
+                }
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    // only sessions of this server are attached to its keys
+                    @SuppressWarnings("unchecked")
+                    final Session attached = (Session) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            attached.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            attached.write();
+                        }
+                    } catch (final IOException e) {
+                        // connection reset by the client
+                        attached.close();
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            e.printStackTrace();
+        } finally {
+            running = false;
+            for (final Session session : new ArrayList<Session>(sessions)) {
+                session.close();
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        final Session session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+        // the context may call the server, it is created by the worker before the first prompt
+        session.start();
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (final IOException e) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * A connection and its context
+     * Bytes are read and written by the selector thread only, lines are executed by one worker at a time
+     */
+    private final class Session implements Runnable {
+
+        private final SocketChannel channel;
+
+        // created by the first worker, null until then or if it can't be created
+        private volatile T context;
+
+        private SelectionKey key;
+
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        private final Queue<String> lines = new ArrayDeque<String>();
+
+        private boolean executing;
+
+        // the worker waits while the client does not read the output
+        private final BlockingQueue<ByteBuffer> pendingOutput = new ArrayBlockingQueue<ByteBuffer>(MAX_PENDING_CHUNKS);
+
+        private final ShellOutput output = new ShellOutput(new SessionWriter(this), false);
+
+        private volatile boolean closing;
+
+        private volatile boolean closed;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Session(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void start() {
+            executing = true;
+            executor.execute(this);
+        }
+
+        void read() throws IOException {
+            final int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                final byte b = readBuffer.get();
+                if (b == '\n') {
+                    submit(new String(line.toByteArray(), UTF_8));
+                    line.reset();
+                } else if (line.size() < MAX_LINE_LENGTH) {
+                    line.write(b);
+                } else {
+                    // not a client of the shell
+                    close();
+                    return;
+                }
+            }
+            readBuffer.clear();
+        }
+
+        private void submit(final String text) {
+            synchronized (this) {
+                lines.add(text);
+                if (executing) {
+                    return;
+                }
+                executing = true;
+            }
+            executor.execute(this);
+        }
+
+        private synchronized String nextLine() {
+            final String next = closing || closed ? null : lines.poll();
+            if (next == null) {
+                executing = false;
+            }
+            return next;
+        }
+
+        @Override
+        public void run() {
+            final ShellOutput previous = ShellOutput.bind(output);
+            // lines of the client are commands, System.in and the files are the ones of the server
+            final ShellInput previousInput = ShellInput.bind(ShellInput.REMOTE);
+            try {
+                if (context == null) {
+                    // the session is closing if the context can't be created
+                    createContext();
+                }
+                String next;
+                while ((next = nextLine()) != null) {
+                    execute(next);
+                }
+            } finally {
+                ShellInput.restore(previousInput);
+                ShellOutput.restore(previous);
+            }
+            if (closed) {
+                release();
+            }
+        }
+
+        private void createContext() {
+            try {
+                context = contextFactory.newContext();
+            } catch (final Exception e) {
+                output.printStackTrace(e);
+                closing = true;
+                output.flush();
+                return;
+            }
+            output.print(PROMPT);
+            output.flush();
+        }
+
+        private void execute(final String text) {
+            final String trimmed = text.trim();
+            if ("exit".equals(trimmed)) {
+                output.println("Exiting application");
+                closing = true;
+                output.flush();
+                return;
+            }
+            if (!trimmed.isEmpty()) {
+                if (context.isLogged() || isAllowedBeforeLogin(trimmed)) {
+                    try {
+                        shell.executeLine(trimmed, context, commands);
+                    } catch (final Exception e) {
+                        output.printStackTrace(e);
+                    }
+                } else {
+                    output.println("Log in first: login <username> <password>");
+                }
+            }
+            final String finishedJobs = shell.finishedJobs(context);
+            if (!finishedJobs.isEmpty()) {
+                output.println(finishedJobs.substring(1));
+            }
+            output.print(PROMPT);
+            output.flush();
+        }
+
+        private boolean isAllowedBeforeLogin(final String line) {
+            final ShellCommand<T> command = commands.get(line.split("\\s+", 2)[0]);
+            return command instanceof HelpCommand || command != null && LazyShellCommand.unwrap(command) instanceof LoginCommand;
+        }
+
+        /**
+         * called by any thread when output was flushed
+         */
+        void requestWrite() {
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        void enableWrite() {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void write() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = pendingOutput.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    // the socket is full, wait until it can be written again
+                    return;
+                }
+                pendingOutput.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (closing) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            closeQuietly(channel);
+            sessions.remove(this);
+            final boolean idle;
+            synchronized (this) {
+                idle = !executing;
+            }
+            if (idle) {
+                // logging out may call the server, not done by the selector thread
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        release();
+                    }
+                });
+            }
+        }
+
+        private void release() {
+            if (!released.compareAndSet(false, true) || context == null) {
+                return;
+            }
+            shell.releaseJobs(context);
+            try {
+                if (context.isLogged()) {
+                    context.logout();
+                }
+            } catch (final Exception e) {
+                e.printStackTrace();
+            } finally {
+                DynamicValueCompleter.invalidateContext(context);
+                if (shell.getResultCache() != null) {
+                    shell.getResultCache().invalidateContext(context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encode the text flushed by a session in chunks and give them to the selector thread, waiting while too many
+     * chunks are not sent yet
+     */
+    private final class SessionWriter extends Writer {
+
+        private final Session session;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        SessionWriter(final Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            buffer.append(cbuf, off, len);
+            while (buffer.length() >= OUTPUT_CHUNK_SIZE) {
+                // a surrogate pair is not split between two chunks
+                final int end = Character.isHighSurrogate(buffer.charAt(OUTPUT_CHUNK_SIZE - 1)) ? OUTPUT_CHUNK_SIZE - 1 : OUTPUT_CHUNK_SIZE;
+                send(end);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.length() > 0) {
+                send(buffer.length());
+            }
+        }
+
+        private void send(final int end) throws IOException {
+            final ByteBuffer chunk = UTF_8.encode(CharBuffer.wrap(buffer, 0, end));
+            buffer.delete(0, end);
+            try {
+                while (!session.closed) {
+                    if (session.pendingOutput.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                        session.requestWrite();
+                        return;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Output of the session interrupted");
+            }
+            // the client is gone, the output is dropped
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class AbstractShellContextTest {
+
+    private static class SessionApi {
+
+        private final String session;
+
+        SessionApi(final String session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * blocks in doLogin until released
+     */
+    private static class SlowLoginContext extends AbstractShellContext {
+
+        private final CountDownLatch loggingIn = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile String session;
+
+        @Override
+        public boolean isLogged() {
+            return session != null;
+        }
+
+        @Override
+        protected Object createApi(final String apiName) {
+            return new SessionApi(session);
+        }
+
+        @Override
+        protected void doLogin(final String username, final String password) throws Exception {
+            loggingIn.countDown();
+            release.await();
+            session = username;
+        }
+
+        @Override
+        protected void doLogout() {
+            session = null;
+        }
+    }
+
+    @Test
+    public void getApi_returns_api_of_new_session_when_called_during_login() throws Exception {
+        final SlowLoginContext context = new SlowLoginContext();
+        final Thread login = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    context.login("john", "bpm");
+                } catch (final Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        login.start();
+        context.loggingIn.await();
+        assertEquals(null, ((SessionApi) context.getApi("processAPI")).session);
+        context.release.countDown();
+        login.join();
+
+        assertEquals("john", ((SessionApi) context.getApi("processAPI")).session);
+    }
+
+    @Test
+    public void getApi_returns_api_of_new_session_after_logout() throws Exception {
+        final SlowLoginContext context = new SlowLoginContext();
+        context.release.countDown();
+        context.login("john", "bpm");
+        assertEquals("john", ((SessionApi) context.getApi("processAPI")).session);
+
+        context.logout();
+
+        assertEquals(null, ((SessionApi) context.getApi("processAPI")).session);
+    }
+
+}
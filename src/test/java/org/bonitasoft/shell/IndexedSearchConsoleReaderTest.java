@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import jline.TerminalSupport;
+import jline.console.ConsoleReader;
+import jline.console.history.MemoryHistory;
+
+import org.bonitasoft.shell.ShellSession.IndexedSearchConsoleReader;
+import org.bonitasoft.shell.history.PersistentHistory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Searches using the index of the history must find the same lines as the ones of jline
+ * 
+ * @author Baptiste Mesta
+ */
+public class IndexedSearchConsoleReaderTest {
+
+    private static final String CTRL_R = "\u0012";
+
+    private static final String CTRL_S = "\u0013";
+
+    private static final String[] LINES = { "echo one", "ls", "echo two", "processAPI getProcessInstance 1", "echo three",
+            "processAPI getProcessInstance 2", "echo four" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TerminalSupport terminal() {
+        return new TerminalSupport(true) {
+        };
+    }
+
+    private String readWithJline(final String keys) throws IOException {
+        final ConsoleReader reader = new ConsoleReader(new ByteArrayInputStream(keys.getBytes("UTF-8")), new ByteArrayOutputStream(),
+                terminal());
+        final MemoryHistory memoryHistory = new MemoryHistory();
+        for (final String line : LINES) {
+            memoryHistory.add(line);
+        }
+        reader.setHistory(memoryHistory);
+        return reader.readLine();
+    }
+
+    private String readWithIndex(final String keys) throws IOException {
+        // the line read is added to the history: a new one for each read
+        final PersistentHistory history = new PersistentHistory(folder.newFile(), 100);
+        try {
+            for (final String line : LINES) {
+                history.add(line);
+            }
+            final ConsoleReader reader = new IndexedSearchConsoleReader(new ByteArrayInputStream(keys.getBytes("UTF-8")),
+                    new ByteArrayOutputStream(), terminal(), history);
+            reader.setHistory(history);
+            return reader.readLine();
+        } finally {
+            history.close();
+        }
+    }
+
+    private void assertSameLine(final String keys) throws IOException {
+        assertEquals(readWithJline(keys), readWithIndex(keys));
+    }
+
+    @Test
+    public void should_find_previous_lines_like_jline() throws Exception {
+        assertSameLine(CTRL_R + "echo" + CTRL_R + CTRL_R + "\r");
+        assertSameLine(CTRL_R + "processAPI get" + CTRL_R + "\r");
+    }
+
+    @Test
+    public void should_find_next_lines_like_jline_when_searching_forwards_again() throws Exception {
+        assertSameLine(CTRL_R + "echo" + CTRL_R + CTRL_R + CTRL_R + CTRL_S + "\r");
+        assertSameLine(CTRL_R + "echo" + CTRL_R + CTRL_R + CTRL_R + CTRL_S + CTRL_S + "\r");
+        assertSameLine(CTRL_R + "processAPI" + CTRL_R + CTRL_S + "\r");
+    }
+
+    @Test
+    public void should_not_find_the_same_line_again_when_searching_forwards() throws Exception {
+        final String keys = CTRL_R + "echo" + CTRL_R + CTRL_R + CTRL_R + CTRL_S + CTRL_S + "\r";
+        assertEquals("echo three", readWithJline(keys));
+        assertEquals("echo three", readWithIndex(keys));
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class TokenizerTest {
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    @Test
+    public void should_split_on_whitespaces() {
+        assertEquals(3, tokenizer.tokenize("  login\tjohn   bpm  "));
+
+        assertEquals(Arrays.asList("login", "john", "bpm"), tokenizer.getTokens());
+        assertTrue(tokenizer.hasTrailingWhitespace());
+    }
+
+    @Test
+    public void should_give_no_token_for_a_blank_line() {
+        assertEquals(0, tokenizer.tokenize("   "));
+
+        assertEquals(Collections.emptyList(), tokenizer.getTokens());
+        assertFalse(tokenizer.hasTrailingWhitespace());
+    }
+
+    @Test
+    public void should_keep_quoted_whitespaces_and_quotes() {
+        tokenizer.tokenize("process deploy \"my process\" 1.0");
+
+        assertEquals(Arrays.asList("process", "deploy", "\"my process\"", "1.0"), tokenizer.getTokens());
+        assertFalse(tokenizer.hasTrailingWhitespace());
+    }
+
+    @Test
+    public void should_remove_escapes_outside_of_quotes() {
+        tokenizer.tokenize("echo my\\ value a\\\"b c\\\\d");
+
+        assertEquals(Arrays.asList("echo", "my value", "a\"b", "c\\d"), tokenizer.getTokens());
+    }
+
+    @Test
+    public void should_keep_escapes_inside_quotes() {
+        tokenizer.tokenize("echo \"a\\\"b c\" next");
+
+        assertEquals(Arrays.asList("echo", "\"a\\\"b c\"", "next"), tokenizer.getTokens());
+    }
+
+    @Test
+    public void should_keep_backslash_before_other_characters() {
+        tokenizer.tokenize("C:\\temp\\file");
+
+        assertEquals(Arrays.asList("C:\\temp\\file"), tokenizer.getTokens());
+    }
+
+    @Test
+    public void should_keep_unclosed_quote_until_end_of_line() {
+        tokenizer.tokenize("echo \"not closed ");
+
+        assertEquals(Arrays.asList("echo", "\"not closed "), tokenizer.getTokens());
+        assertFalse(tokenizer.hasTrailingWhitespace());
+    }
+
+    @Test
+    public void should_give_offsets_of_tokens() {
+        tokenizer.tokenize(" ab  \"c d\"");
+
+        assertEquals(1, tokenizer.getStart(0));
+        assertEquals(3, tokenizer.getEnd(0));
+        assertEquals(5, tokenizer.getStart(1));
+        assertEquals(10, tokenizer.getEnd(1));
+    }
+
+    @Test
+    public void should_reuse_buffers_between_lines() {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            line.append("t").append(i).append(' ');
+        }
+        assertEquals(40, tokenizer.tokenize(line));
+        assertEquals("t39", tokenizer.getToken(39));
+
+        assertEquals(1, tokenizer.tokenize("single"));
+        assertEquals(Arrays.asList("single"), tokenizer.getTokens());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void should_reject_token_of_previous_line() {
+        tokenizer.tokenize("a b c");
+        tokenizer.tokenize("a");
+
+        tokenizer.getToken(1);
+    }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class ResultCacheTest {
+
+    public static class IdentityAPI {
+
+        @ReadOnly
+        public long whoami() {
+            return 1;
+        }
+
+        public long createUser() {
+            return 2;
+        }
+    }
+
+    private static final String PROCESS_API = "processAPI";
+
+    private static final String IDENTITY_API = "identityAPI";
+
+    private final Object context = new Object();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Callable<Object> counting = new Callable<Object>() {
+
+        @Override
+        public Object call() {
+            return calls.incrementAndGet();
+        }
+    };
+
+    private Object read(final ResultCache cache, final Object callContext, final String apiName, final Object... arguments) throws Exception {
+        return cache.call(callContext, apiName, "getProcess", Arrays.asList(arguments), true, counting);
+    }
+
+    private Object write(final ResultCache cache, final String apiName) throws Exception {
+        return cache.call(context, apiName, "deleteProcess", Collections.emptyList(), false, counting);
+    }
+
+    @Test
+    public void should_tell_read_only_methods_by_name_or_annotation() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+
+        assertTrue(cache.isReadOnly("getProcess"));
+        assertTrue(cache.isReadOnly("searchProcessInstances"));
+        assertTrue(cache.isReadOnly("count"));
+        assertFalse(cache.isReadOnly("getaway"));
+        assertFalse(cache.isReadOnly("deleteProcess"));
+        assertTrue(cache.isReadOnly(IdentityAPI.class.getMethod("whoami")));
+        assertFalse(cache.isReadOnly(IdentityAPI.class.getMethod("createUser")));
+    }
+
+    @Test
+    public void should_give_result_of_previous_identical_call() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+
+        assertEquals(1, read(cache, context, PROCESS_API, 12L));
+        assertEquals(1, read(cache, context, PROCESS_API, 12L));
+        assertEquals(2, read(cache, context, PROCESS_API, 13L));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void should_keep_null_results() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+        final Callable<Object> returningNull = new Callable<Object>() {
+
+            @Override
+            public Object call() {
+                calls.incrementAndGet();
+                return null;
+            }
+        };
+        final List<Object> arguments = Collections.emptyList();
+
+        assertNull(cache.call(context, PROCESS_API, "getProcess", arguments, true, returningNull));
+        assertNull(cache.call(context, PROCESS_API, "getProcess", arguments, true, returningNull));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void should_not_share_results_between_contexts() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+
+        assertEquals(1, read(cache, context, PROCESS_API, 12L));
+        assertEquals(2, read(cache, new Object(), PROCESS_API, 12L));
+    }
+
+    @Test
+    public void should_evict_least_recently_used_result_when_full() throws Exception {
+        final ResultCache cache = new ResultCache(2, 60000);
+        read(cache, context, PROCESS_API, 1L);
+        read(cache, context, PROCESS_API, 2L);
+        // 1 becomes the most recently used
+        read(cache, context, PROCESS_API, 1L);
+
+        read(cache, context, PROCESS_API, 3L);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        assertEquals(1, read(cache, context, PROCESS_API, 1L));
+        assertEquals(4, read(cache, context, PROCESS_API, 2L));
+    }
+
+    @Test
+    public void should_call_again_once_result_expired() throws Exception {
+        final ResultCache cache = new ResultCache(10, 1);
+        read(cache, context, PROCESS_API, 12L);
+
+        Thread.sleep(10);
+
+        assertEquals(2, read(cache, context, PROCESS_API, 12L));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    public void should_remove_results_of_api_on_write() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+        read(cache, context, PROCESS_API, 12L);
+        read(cache, context, IDENTITY_API, 12L);
+
+        assertEquals(3, write(cache, PROCESS_API));
+
+        assertEquals(4, read(cache, context, PROCESS_API, 12L));
+        assertEquals(2, read(cache, context, IDENTITY_API, 12L));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void should_remove_results_of_api_when_write_fails() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+        read(cache, context, PROCESS_API, 12L);
+        try {
+            cache.call(context, PROCESS_API, "deleteProcess", Collections.emptyList(), false, new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    throw new IllegalStateException("partially deleted");
+                }
+            });
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(2, read(cache, context, PROCESS_API, 12L));
+    }
+
+    @Test
+    public void should_remove_results_of_context() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+        final Object other = new Object();
+        read(cache, context, PROCESS_API, 12L);
+        read(cache, other, PROCESS_API, 12L);
+
+        cache.invalidateContext(context);
+
+        assertEquals(3, read(cache, context, PROCESS_API, 12L));
+        assertEquals(2, read(cache, other, PROCESS_API, 12L));
+    }
+
+    @Test
+    public void should_not_keep_result_of_call_overlapping_a_write() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+
+        cache.call(context, PROCESS_API, "getProcess", Collections.emptyList(), true, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                // another session deletes the process while it is read
+                write(cache, PROCESS_API);
+                return "stale";
+            }
+        });
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void should_not_keep_result_of_call_overlapping_a_logout() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+
+        cache.call(context, PROCESS_API, "getProcess", Collections.emptyList(), true, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                cache.invalidateContext(context);
+                return "result of the previous user";
+            }
+        });
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void should_clear_all_results() throws Exception {
+        final ResultCache cache = new ResultCache(10, 60000);
+        read(cache, context, PROCESS_API, 12L);
+        read(cache, context, IDENTITY_API, 12L);
+
+        cache.clear();
+        cache.resetStatistics();
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getMisses());
+        assertEquals(3, read(cache, context, PROCESS_API, 12L));
+    }
+
+}
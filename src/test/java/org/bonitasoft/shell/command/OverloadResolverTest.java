@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.shell.converter.ConverterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class OverloadResolverTest {
+
+    public static class IdentityAPI {
+
+        public String find(final long id) {
+            return "long";
+        }
+
+        public String find(final int id) {
+            return "int";
+        }
+
+        public String find(final double value) {
+            return "double";
+        }
+
+        public String find(final boolean enabled) {
+            return "boolean";
+        }
+
+        public String find(final String name) {
+            return "String";
+        }
+
+        public String count(final int max) {
+            return "int";
+        }
+
+        public String since(final Date date) {
+            return "Date";
+        }
+
+        public String since(final TimeUnit unit) {
+            return "TimeUnit";
+        }
+
+        public String add(final String name, final long id) {
+            return "String,long";
+        }
+
+        public String add(final long id, final String name) {
+            return "long,String";
+        }
+    }
+
+    private OverloadResolver resolver;
+
+    @Before
+    public void before() {
+        resolver = new OverloadResolver(IdentityAPI.class.getMethods(), new ConverterRegistry());
+    }
+
+    private String resolve(final String methodName, final Object... parameters) throws Exception {
+        final Method method = resolver.resolve(methodName, Arrays.asList(parameters)).getMethod();
+        final StringBuilder signature = new StringBuilder();
+        for (final Class<?> type : method.getParameterTypes()) {
+            signature.append(signature.length() > 0 ? "," : "").append(type.getSimpleName());
+        }
+        return signature.toString();
+    }
+
+    @Test
+    public void should_prefer_long_for_integers() throws Exception {
+        assertEquals("long", resolve("find", "12"));
+        assertEquals("long", resolve("find", "-12"));
+    }
+
+    @Test
+    public void should_choose_long_for_integers_too_large_for_int() throws Exception {
+        assertEquals("long", resolve("find", "3000000000"));
+    }
+
+    @Test
+    public void should_choose_int_when_it_is_the_only_integer_overload() throws Exception {
+        assertEquals("int", resolve("count", "12"));
+    }
+
+    @Test
+    public void should_choose_double_for_decimals() throws Exception {
+        assertEquals("double", resolve("find", "1.5"));
+    }
+
+    @Test
+    public void should_choose_boolean_for_true_and_false() throws Exception {
+        assertEquals("boolean", resolve("find", "TRUE"));
+    }
+
+    @Test
+    public void should_choose_string_for_quoted_numbers_and_words() throws Exception {
+        assertEquals("String", resolve("find", "\"12\""));
+        assertEquals("String", resolve("find", "john"));
+    }
+
+    @Test
+    public void should_choose_overload_by_class_of_objects() throws Exception {
+        assertEquals("int", resolve("find", Integer.valueOf(12)));
+        assertEquals("long", resolve("find", Long.valueOf(12)));
+    }
+
+    @Test
+    public void should_score_each_parameter() throws Exception {
+        assertEquals("String,long", resolve("add", "john", "12"));
+        assertEquals("long,String", resolve("add", "12", "john"));
+    }
+
+    @Test
+    public void should_resolve_ties_the_same_way_whatever_the_order_of_methods() throws Exception {
+        final List<Method> methods = new ArrayList<Method>(Arrays.asList(IdentityAPI.class.getMethods()));
+        Collections.reverse(methods);
+        final OverloadResolver reversed = new OverloadResolver(methods.toArray(new Method[methods.size()]), new ConverterRegistry());
+
+        final Method method = resolver.resolve("since", Arrays.asList("yesterday")).getMethod();
+
+        assertEquals(Date.class, method.getParameterTypes()[0]);
+        assertEquals(method, reversed.resolve("since", Arrays.asList("yesterday")).getMethod());
+    }
+
+    @Test
+    public void should_memoize_plan_per_shape() throws Exception {
+        final InvocationPlan plan = resolver.resolve("find", Arrays.asList("12"));
+
+        assertSame(plan, resolver.resolve("find", Arrays.asList("34")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_parameters_no_overload_accepts() throws Exception {
+        resolver.resolve("count", Arrays.asList("1.5"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unknown_arity() throws Exception {
+        resolver.resolve("count", Arrays.asList("1", "2"));
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class DateConverterTest {
+
+    private final DateConverter converter = new DateConverter();
+
+    private static Date date(final int year, final int month, final int day, final int hour, final int minute, final int second) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTime();
+    }
+
+    @Test
+    public void should_convert_milliseconds_since_epoch() throws Exception {
+        assertEquals(new Date(1400000000000L), converter.convert("1400000000000"));
+    }
+
+    @Test
+    public void should_convert_day_in_default_time_zone() throws Exception {
+        assertEquals(date(2014, 5, 13, 0, 0, 0), converter.convert("2014-05-13"));
+    }
+
+    @Test
+    public void should_convert_date_and_time() throws Exception {
+        assertEquals(date(2014, 5, 13, 17, 30, 5), converter.convert("2014-05-13T17:30:05"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void should_reject_day_that_does_not_exist() throws Exception {
+        converter.convert("2014-02-30");
+    }
+
+    @Test(expected = ParseException.class)
+    public void should_reject_trailing_characters() throws Exception {
+        converter.convert("2014-05-13 tomorrow");
+    }
+
+    @Test(expected = ParseException.class)
+    public void should_reject_other_formats() throws Exception {
+        converter.convert("13/05/2014");
+    }
+
+}
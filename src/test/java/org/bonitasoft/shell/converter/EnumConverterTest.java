@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class EnumConverterTest {
+
+    private final EnumConverter<TimeUnit> converter = new EnumConverter<TimeUnit>(TimeUnit.class);
+
+    @Test
+    public void should_convert_name_of_constant() {
+        assertEquals(TimeUnit.SECONDS, converter.convert("SECONDS"));
+    }
+
+    @Test
+    public void should_ignore_case() {
+        assertEquals(TimeUnit.MILLISECONDS, converter.convert("milliSeconds"));
+    }
+
+    @Test
+    public void should_list_constants_when_name_is_unknown() {
+        try {
+            converter.convert("weeks");
+            fail("weeks is not a TimeUnit");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("weeks is not one of "));
+            assertTrue(e.getMessage(), e.getMessage().contains("DAYS"));
+        }
+    }
+
+    @Test
+    public void should_be_given_by_the_registry_for_enums() throws Exception {
+        assertEquals(TimeUnit.HOURS, new ConverterRegistry().getConverter(TimeUnit.class).convert("hours"));
+    }
+
+}
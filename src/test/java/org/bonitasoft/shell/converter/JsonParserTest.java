@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class JsonParserTest {
+
+    private static Object parse(final String text) {
+        return new JsonParser(text).parse();
+    }
+
+    @Test
+    public void should_parse_literals() {
+        assertEquals(Boolean.TRUE, parse("true"));
+        assertEquals(Boolean.FALSE, parse(" false "));
+        assertNull(parse("null"));
+    }
+
+    @Test
+    public void should_parse_integral_numbers_to_long_and_others_to_double() {
+        assertEquals(Long.valueOf(-12), parse("-12"));
+        assertEquals(Long.valueOf(3000000000L), parse("3000000000"));
+        assertEquals(Double.valueOf(1.5), parse("1.5"));
+        assertEquals(Double.valueOf(1000), parse("1e3"));
+    }
+
+    @Test
+    public void should_parse_escapes_of_strings() {
+        assertEquals("a\"b\\c\nd\u00e9", parse("\"a\\\"b\\\\c\\nd\\u00e9\""));
+    }
+
+    @Test
+    public void should_parse_objects_keeping_the_order_of_keys() {
+        final Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("name", "john");
+        expected.put("age", 42L);
+        expected.put("tags", Arrays.asList("a", "b"));
+        expected.put("manager", Collections.singletonMap("name", "jack"));
+
+        final Object parsed = parse("{ \"name\" : \"john\", \"age\": 42, \"tags\": [\"a\", \"b\"], \"manager\": {\"name\": \"jack\"} }");
+
+        assertEquals(expected, parsed);
+        assertEquals(Arrays.asList("name", "age", "tags", "manager"), Arrays.asList(((Map<?, ?>) parsed).keySet().toArray()));
+    }
+
+    @Test
+    public void should_parse_empty_containers() {
+        assertEquals(Collections.emptyMap(), parse("{}"));
+        assertEquals(Collections.emptyList(), parse("[ ]"));
+    }
+
+    @Test
+    public void should_parse_nested_arrays() {
+        final List<Object> expected = Arrays.<Object> asList(1L, Arrays.asList(2L, 3L), null);
+
+        assertEquals(expected, parse("[1, [2, 3], null]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_trailing_characters() {
+        parse("[1] x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unterminated_string() {
+        parse("\"abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_missing_value() {
+        parse("{\"a\": }");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_keys_that_are_not_strings() {
+        parse("{a: 1}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unclosed_array() {
+        parse("[1, 2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_invalid_number() {
+        parse("1-2");
+    }
+
+}
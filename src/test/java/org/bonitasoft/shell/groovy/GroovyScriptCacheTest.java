@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2014 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.shell.groovy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import groovy.lang.Script;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class GroovyScriptCacheTest {
+
+    private static final String SCRIPT = "[1, 2].collect { it * 2 }";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GroovyScriptCache newCache(final File directory) {
+        return new GroovyScriptCache(getClass().getClassLoader(), directory);
+    }
+
+    private static Object run(final Class<? extends Script> scriptClass) throws Exception {
+        return scriptClass.newInstance().run();
+    }
+
+    private static File[] storedScripts(final File directory) {
+        return directory.listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.endsWith(".classes");
+            }
+        });
+    }
+
+    private File storedScript(final File directory) {
+        final File[] files = storedScripts(directory);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    @Test
+    public void should_compile_a_script_once() throws Exception {
+        final GroovyScriptCache cache = newCache(null);
+
+        final Class<? extends Script> scriptClass = cache.getScriptClass(SCRIPT);
+
+        assertEquals(Arrays.asList(2, 4), run(scriptClass));
+        assertSame(scriptClass, cache.getScriptClass(SCRIPT));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void should_store_classes_of_script_and_closures_followed_by_their_digest() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+
+        final Class<? extends Script> scriptClass = newCache(directory).getScriptClass(SCRIPT);
+
+        final File file = storedScript(directory);
+        assertEquals(scriptClass.getName() + ".classes", file.getName());
+        final byte[] content = Files.readAllBytes(file.toPath());
+        final byte[] digest = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(content, content.length - 32));
+        assertArrayEquals(digest, Arrays.copyOfRange(content, content.length - 32, content.length));
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 32));
+        assertEquals(0x47534331, input.readInt());
+        final int count = input.readInt();
+        final Set<String> names = new HashSet<String>();
+        for (int i = 0; i < count; i++) {
+            names.add(input.readUTF());
+            final byte[] bytecode = new byte[input.readInt()];
+            input.readFully(bytecode);
+            assertEquals(0xCAFEBABE, new DataInputStream(new ByteArrayInputStream(bytecode)).readInt());
+        }
+        assertEquals(-1, input.read());
+        // the script and its closure
+        assertEquals(2, names.size());
+        assertTrue(names.toString(), names.contains(scriptClass.getName()));
+    }
+
+    @Test
+    public void should_load_stored_script_without_writing_it_again() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        newCache(directory).getScriptClass(SCRIPT);
+        final File file = storedScript(directory);
+        final byte[] stored = Files.readAllBytes(file.toPath());
+        assertTrue(file.setLastModified(1000));
+
+        final Class<? extends Script> scriptClass = newCache(directory).getScriptClass(SCRIPT);
+
+        assertEquals(Arrays.asList(2, 4), run(scriptClass));
+        assertEquals(1000, file.lastModified());
+        assertArrayEquals(stored, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void should_compile_again_a_script_whose_file_was_modified() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final Class<? extends Script> compiled = newCache(directory).getScriptClass(SCRIPT);
+        final File file = storedScript(directory);
+        final byte[] stored = Files.readAllBytes(file.toPath());
+        final byte[] tampered = stored.clone();
+        tampered[tampered.length / 2] ^= 1;
+        Files.write(file.toPath(), tampered);
+
+        final Class<? extends Script> scriptClass = newCache(directory).getScriptClass(SCRIPT);
+
+        assertNotSame(compiled, scriptClass);
+        assertEquals(Arrays.asList(2, 4), run(scriptClass));
+        final byte[] rewritten = Files.readAllBytes(file.toPath());
+        final byte[] digest = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(rewritten, rewritten.length - 32));
+        assertArrayEquals(digest, Arrays.copyOfRange(rewritten, rewritten.length - 32, rewritten.length));
+    }
+
+    @Test
+    public void should_compile_again_a_script_whose_file_is_truncated() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        newCache(directory).getScriptClass(SCRIPT);
+        final File file = storedScript(directory);
+        Files.write(file.toPath(), new byte[] { 0x47, 0x53 });
+
+        assertEquals(Arrays.asList(2, 4), run(newCache(directory).getScriptClass(SCRIPT)));
+        assertTrue(file.length() > 32);
+    }
+
+    @Test
+    public void should_store_each_script_in_its_own_file() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final GroovyScriptCache cache = newCache(directory);
+
+        assertEquals(3, run(cache.getScriptClass("1 + 2")));
+        assertEquals("a", run(cache.getScriptClass("'a'")));
+
+        assertEquals(2, storedScripts(directory).length);
+        assertEquals(2, cache.size());
+    }
+
+}
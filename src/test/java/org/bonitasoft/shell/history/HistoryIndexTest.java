@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class HistoryIndexTest {
+
+    private final List<String> lines = new ArrayList<String>();
+
+    private HistoryIndex index;
+
+    @Before
+    public void before() {
+        index = new HistoryIndex(new HistoryIndex.Lines() {
+
+            @Override
+            public String get(final int i) {
+                return lines.get(i);
+            }
+
+            @Override
+            public int size() {
+                return lines.size();
+            }
+        });
+        add("login john bpm");
+        add("process list 0 10");
+        add("process deploy app.bar");
+        add("logout");
+        add("process list 0 100");
+    }
+
+    private void add(final String line) {
+        index.add(lines.size(), line);
+        lines.add(line);
+    }
+
+    @Test
+    public void should_find_closest_line_before_start_containing_text() {
+        assertEquals(4, index.searchBackwards("list", 5, false));
+        assertEquals(1, index.searchBackwards("list", 4, false));
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchBackwards("list", 1, false));
+    }
+
+    @Test
+    public void should_find_closest_line_from_start_containing_text() {
+        assertEquals(1, index.searchForwards("list", 0, false));
+        assertEquals(1, index.searchForwards("list", 1, false));
+        assertEquals(4, index.searchForwards("list", 2, false));
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchForwards("list", 5, false));
+    }
+
+    @Test
+    public void should_find_lines_starting_with_text() {
+        assertEquals(3, index.searchBackwards("log", 5, true));
+        assertEquals(0, index.searchBackwards("log", 3, true));
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchBackwards("deploy", 5, true));
+        assertEquals(2, index.searchForwards("process d", 0, true));
+    }
+
+    @Test
+    public void should_search_text_shorter_than_a_trigram() {
+        assertEquals(4, index.searchBackwards("0", 5, false));
+        assertEquals(0, index.searchForwards("lo", 0, true));
+    }
+
+    @Test
+    public void should_verify_lines_having_all_trigrams_of_text() {
+        add("abcd xbcde");
+
+        // all trigrams of the text are in the line but not the text
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchBackwards("abcde", 6, false));
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchForwards("abcde", 0, false));
+        assertEquals(5, index.searchBackwards("xbcd", 6, false));
+    }
+
+    @Test
+    public void should_not_find_text_having_unknown_trigram() {
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchBackwards("unknown", 5, false));
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchForwards("unknown", 0, false));
+    }
+
+    @Test
+    public void should_not_find_removed_line() {
+        index.removeLast(4, lines.remove(4));
+        add("process start 12");
+
+        assertEquals(1, index.searchBackwards("list", 5, false));
+        assertEquals(4, index.searchBackwards("start", 5, false));
+    }
+
+    @Test
+    public void should_not_find_lines_once_cleared() {
+        index.clear();
+
+        assertEquals(HistoryIndex.NOT_FOUND, index.searchBackwards("list", 5, false));
+    }
+
+    @Test
+    public void should_find_same_lines_as_a_scan() {
+        final Random random = new Random(42);
+        final String[] words = { "process", "list", "deploy", "case", "start", "task", "assign", "user", "group", "role" };
+        for (int i = 0; i < 5000; i++) {
+            add(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + random.nextInt(1000));
+        }
+        for (int i = 0; i < 200; i++) {
+            final String text = i % 2 == 0 ? words[random.nextInt(words.length)] + " " + random.nextInt(10) : String.valueOf(random.nextInt(1000));
+            final int start = random.nextInt(lines.size() + 1);
+            assertEquals(text, scanBackwards(text, start), index.searchBackwards(text, start, false));
+            assertEquals(text, scanForwards(text, start), index.searchForwards(text, start, false));
+        }
+    }
+
+    private int scanBackwards(final String text, final int start) {
+        for (int i = start - 1; i >= 0; i--) {
+            if (lines.get(i).contains(text)) {
+                return i;
+            }
+        }
+        return HistoryIndex.NOT_FOUND;
+    }
+
+    private int scanForwards(final String text, final int start) {
+        for (int i = start; i < lines.size(); i++) {
+            if (lines.get(i).contains(text)) {
+                return i;
+            }
+        }
+        return HistoryIndex.NOT_FOUND;
+    }
+
+}
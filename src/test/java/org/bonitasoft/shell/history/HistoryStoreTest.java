@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class HistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static List<String> lines(final HistoryStore store) {
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < store.size(); i++) {
+            lines.add(store.get(i));
+        }
+        return lines;
+    }
+
+    private static List<String> read(final File file) throws IOException {
+        final HistoryStore store = new HistoryStore(file);
+        try {
+            return lines(store);
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void write(final File file, final String... lines) throws IOException {
+        final HistoryStore store = new HistoryStore(file);
+        try {
+            for (final String line : lines) {
+                store.append(line);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * @return
+     *         offset of the end of the records, where the next one is written
+     */
+    private static int endOfRecords(final String... lines) {
+        int position = 8;
+        for (final String line : lines) {
+            position += 4 + line.getBytes(HistoryStore.UTF_8).length;
+        }
+        return position;
+    }
+
+    @Test
+    public void should_keep_lines_between_runs() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+
+        write(file, "login john bpm", "process list 0 10", "caf\u00e9 \u20ac");
+
+        assertEquals(Arrays.asList("login john bpm", "process list 0 10", "caf\u00e9 \u20ac"), read(file));
+    }
+
+    @Test
+    public void should_ignore_line_whose_length_was_not_written() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        write(file, "first", "second");
+        // the shell crashed after writing the bytes of a third line but before its length
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(endOfRecords("first", "second") + 4);
+            randomAccessFile.write("third".getBytes(HistoryStore.UTF_8));
+        } finally {
+            randomAccessFile.close();
+        }
+
+        final HistoryStore store = new HistoryStore(file);
+        try {
+            assertEquals(Arrays.asList("first", "second"), lines(store));
+            store.append("fourth");
+        } finally {
+            store.close();
+        }
+        assertEquals(Arrays.asList("first", "second", "fourth"), read(file));
+    }
+
+    @Test
+    public void should_ignore_line_cut_by_end_of_file() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        write(file, "first", "a long second line");
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(endOfRecords("first") + 4 + 3);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        assertEquals(Arrays.asList("first"), read(file));
+    }
+
+    @Test
+    public void should_rewrite_file_with_header_records_and_end_marker() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        final HistoryStore store = new HistoryStore(file);
+        try {
+            store.append("old");
+
+            store.rewrite(Arrays.asList("a", "\u00e9t\u00e9"));
+
+            assertEquals(Arrays.asList("a", "\u00e9t\u00e9"), lines(store));
+        } finally {
+            store.close();
+        }
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(expected);
+        output.writeInt(0x53484831);
+        output.writeInt(0);
+        output.writeInt(1);
+        output.write('a');
+        output.writeInt(5);
+        output.write("\u00e9t\u00e9".getBytes(HistoryStore.UTF_8));
+        output.writeInt(0);
+        final byte[] content = Files.readAllBytes(file.toPath());
+        // the file is extended when it is mapped again
+        assertEquals(Arrays.toString(expected.toByteArray()), Arrays.toString(Arrays.copyOf(content, expected.size())));
+        assertEquals(Arrays.asList("a", "\u00e9t\u00e9"), read(file));
+    }
+
+    @Test
+    public void should_remove_last_line() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        final HistoryStore store = new HistoryStore(file);
+        try {
+            store.append("first");
+            store.append("typo");
+
+            store.removeLast();
+            store.append("second");
+        } finally {
+            store.close();
+        }
+
+        assertEquals(Arrays.asList("first", "second"), read(file));
+    }
+
+    @Test
+    public void should_grow_file_for_lines_larger_than_mapping() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        final char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        final String large = new String(chars);
+
+        write(file, "first", large, "last");
+
+        assertEquals(Arrays.asList("first", large, "last"), read(file));
+    }
+
+    @Test
+    public void should_keep_lines_in_memory_when_file_is_used_by_another_shell() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        write(file, "first");
+        final HistoryStore owner = new HistoryStore(file);
+        try {
+            final HistoryStore other = new HistoryStore(file);
+            try {
+                assertTrue(other.isReadOnly());
+                other.append("from other shell");
+                assertEquals(Arrays.asList("first", "from other shell"), lines(other));
+            } finally {
+                other.close();
+            }
+            assertFalse(owner.isReadOnly());
+            owner.append("second");
+        } finally {
+            owner.close();
+        }
+
+        assertEquals(Arrays.asList("first", "second"), read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void should_refuse_file_that_is_not_a_history() throws Exception {
+        final File file = temporaryFolder.newFile("notes.txt");
+        Files.write(file.toPath(), "some notes".getBytes(HistoryStore.UTF_8));
+
+        new HistoryStore(file);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.history;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class PersistentHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final PersistentHistory.Filter NO_PASSWORD = new PersistentHistory.Filter() {
+
+        @Override
+        public boolean isKept(final String line) {
+            return !line.startsWith("login ");
+        }
+    };
+
+    private static List<String> lines(final PersistentHistory history) {
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < history.size(); i++) {
+            lines.add(history.get(i).toString());
+        }
+        return lines;
+    }
+
+    @Test
+    public void should_keep_last_occurrence_of_most_recent_lines_when_compacted() throws Exception {
+        final PersistentHistory history = new PersistentHistory(new File(temporaryFolder.getRoot(), "history"), 3);
+        try {
+            for (final String line : Arrays.asList("a", "b", "a", "c", "d", "c")) {
+                history.add(line);
+            }
+            // compacted when it reached twice the maximum size
+            assertEquals(Arrays.asList("a", "d", "c"), lines(history));
+        } finally {
+            history.close();
+        }
+    }
+
+    @Test
+    public void should_not_add_consecutive_duplicates() throws Exception {
+        final PersistentHistory history = new PersistentHistory(new File(temporaryFolder.getRoot(), "history"), 10);
+        try {
+            history.add("a");
+            history.add("a");
+            history.add("b");
+
+            assertEquals(Arrays.asList("a", "b"), lines(history));
+        } finally {
+            history.close();
+        }
+    }
+
+    @Test
+    public void should_filter_lines_of_file_when_compacted_on_open() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        final PersistentHistory unfiltered = new PersistentHistory(file, 10);
+        try {
+            for (final String line : Arrays.asList("login john secret", "a", "b", "login jack secret", "c")) {
+                unfiltered.add(line);
+            }
+        } finally {
+            unfiltered.close();
+        }
+
+        final PersistentHistory history = new PersistentHistory(file, 2, NO_PASSWORD);
+        try {
+            assertEquals(Arrays.asList("b", "c"), lines(history));
+            history.add("login bob secret");
+            assertEquals(Arrays.asList("b", "c"), lines(history));
+        } finally {
+            history.close();
+        }
+    }
+
+    @Test
+    public void should_search_lines_of_file_and_added_lines() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history");
+        final PersistentHistory previous = new PersistentHistory(file, 10);
+        try {
+            previous.add("process list 0 10");
+            previous.add("logout");
+        } finally {
+            previous.close();
+        }
+
+        final PersistentHistory history = new PersistentHistory(file, 10);
+        try {
+            history.add("process deploy app.bar");
+
+            assertEquals(2, history.searchBackwards("process", 3, false));
+            assertEquals(0, history.searchBackwards("process", 2, true));
+            assertEquals(1, history.searchForwards("out", 0, false));
+        } finally {
+            history.close();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2012, the original author or authors.
+ * This software is distributable under the BSD license. See the terms of the
+ * BSD license in the documentation provided with this software.
+ * http://www.opensource.org/licenses/bsd-license.php
+ */
+package org.bonitasoft.shell.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.bonitasoft.engine.search.SearchResult;
+import org.bonitasoft.shell.ShellContext;
+import org.bonitasoft.shell.command.ReflectCommand;
+import org.bonitasoft.shell.command.ShellCommand;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Baptiste Mesta
+ */
+public class PipelineTest {
+
+    public static class ProcessInstance implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+
+        private final String state;
+
+        ProcessInstance(final long id, final String state) {
+            this.id = id;
+            this.state = state;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getState() {
+            return state;
+        }
+    }
+
+    /**
+     * not public, as implementations of the engine
+     */
+    static class ProcessInstanceSearchResult implements SearchResult<ProcessInstance> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<ProcessInstance> result;
+
+        ProcessInstanceSearchResult(final List<ProcessInstance> result) {
+            this.result = result;
+        }
+
+        @Override
+        public long getCount() {
+            return result.size();
+        }
+
+        @Override
+        public List<ProcessInstance> getResult() {
+            return result;
+        }
+    }
+
+    public static class ProcessAPI {
+
+        private final List<Long> cancelled = new ArrayList<Long>();
+
+        public SearchResult<ProcessInstance> searchProcessInstances(final int startIndex, final int maxResults) {
+            return new ProcessInstanceSearchResult(Arrays.asList(new ProcessInstance(1, "started"), new ProcessInstance(2, "completed"),
+                    new ProcessInstance(3, "started")));
+        }
+
+        public void cancelProcessInstance(final long processInstanceId) {
+            cancelled.add(processInstanceId);
+        }
+    }
+
+    private final ProcessAPI processAPI = new ProcessAPI();
+
+    private final ShellContext context = new ShellContext() {
+
+        @Override
+        public boolean isLogged() {
+            return true;
+        }
+
+        @Override
+        public void login(final String username, final String password) {
+        }
+
+        @Override
+        public void logout() {
+        }
+
+        @Override
+        public Object getApi(final String apiName) {
+            return processAPI;
+        }
+    };
+
+    private Pipeline pipeline;
+
+    @Before
+    public void before() {
+        final HashMap<String, ShellCommand<ShellContext>> commands = new HashMap<String, ShellCommand<ShellContext>>();
+        commands.put("processAPI", new ReflectCommand<ShellContext>("processAPI", ProcessAPI.class));
+        pipeline = new Pipeline(commands);
+    }
+
+    private Object execute(final String... line) throws Exception {
+        return pipeline.execute(Pipeline.split(Arrays.asList(line)), context);
+    }
+
+    @Test
+    public void map_iterates_on_elements_of_a_search_result() throws Exception {
+        final Object ids = execute("processAPI", "searchProcessInstances", "0", "100", "|", "map", "id");
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids);
+    }
+
+    @Test
+    public void foreach_calls_the_method_for_each_element_of_a_search_result() throws Exception {
+        final Object calls = execute("processAPI", "searchProcessInstances", "0", "100", "|", "filter", "state", "=", "started", "|", "map",
+                "id", "|", "foreach", "processAPI", "cancelProcessInstance", "$");
+
+        assertEquals(2, calls);
+        assertEquals(Arrays.asList(1L, 3L), processAPI.cancelled);
+    }
+
+}